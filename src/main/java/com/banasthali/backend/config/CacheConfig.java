@@ -0,0 +1,40 @@
+package com.banasthali.backend.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Item list caches. Entries are patched in place by ItemCacheUpdater when
+// items change; the expiry counts from creation (patches do not extend it)
+// and only bounds staleness from writes on other nodes.
+// Stats are recorded so actuator exposes cache.gets / cache.evictions.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ITEM_FEED = "itemFeed";
+
+    public static final String ITEMS_BY_CATEGORY = "itemsByCategory";
+
+    private static final Duration ENTRY_LIFETIME = Duration.ofMinutes(10);
+
+    @Bean
+    public CaffeineCacheManager cacheManager() {
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(ITEM_FEED, ITEMS_BY_CATEGORY);
+
+        cacheManager.setCaffeine(
+                Caffeine.newBuilder()
+                        .maximumSize(500)
+                        .recordStats()
+                        .expireAfter(Expiry.<Object, Object>creating((key, value) -> ENTRY_LIFETIME))
+        );
+
+        return cacheManager;
+    }
+}
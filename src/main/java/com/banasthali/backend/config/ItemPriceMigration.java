@@ -0,0 +1,54 @@
+package com.banasthali.backend.config;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+// Item prices used to be written as strings (the Spring Data default for
+// BigDecimal), which compare and sort as text. Converts the remaining ones to
+// Decimal128 in place; values that do not parse are left untouched.
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "mongo.migrate-item-prices", havingValue = "true", matchIfMissing = true)
+public class ItemPriceMigration {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrateStringPrices() {
+
+        try {
+
+            UpdateResult result = mongoTemplate.getCollection("items").updateMany(
+                    Filters.type("price", BsonType.STRING),
+                    List.of(new Document("$set", new Document("price",
+                            new Document("$convert", new Document("input", "$price")
+                                    .append("to", "decimal")
+                                    .append("onError", "$price")))))
+            );
+
+            if (result.getModifiedCount() > 0) {
+                log.info("Converted {} item prices to Decimal128", result.getModifiedCount());
+            }
+
+        } catch (Exception e) {
+
+            log.error("Item price migration failed", e);
+
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.banasthali.backend.config;
+
+import com.banasthali.backend.model.Booking;
+import com.banasthali.backend.model.Driver;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.Message;
+import com.banasthali.backend.model.SavedSearch;
+import com.banasthali.backend.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Collation;
+
+import java.util.List;
+import java.util.Map;
+
+// Spring Boot leaves auto-index-creation off, so the indexes declared on the
+// documents are created here. A failure is logged rather than stopping startup.
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "mongo.ensure-indexes", havingValue = "true", matchIfMissing = true)
+public class MongoIndexConfig {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+            Item.class,
+            User.class,
+            Booking.class,
+            Message.class,
+            Driver.class,
+            SavedSearch.class
+    );
+
+    private static final Collation CASE_INSENSITIVE = Collation.of("en").strength(2);
+
+    // Indexes the mapping annotations cannot express
+    private static final Map<Class<?>, List<IndexDefinition>> EXTRA_INDEXES = Map.of(
+            Item.class, List.of(
+                    // findByCategoryIgnoreCaseAndAvailableTrue runs with the same collation
+                    new Index()
+                            .on("category", Sort.Direction.ASC)
+                            .on("available", Sort.Direction.ASC)
+                            .named("category_available_ci")
+                            .collation(CASE_INSENSITIVE),
+
+                    // findFiltered: equality keys first, then the sort keys, then
+                    // the price range, so a filtered page is read in order from the
+                    // index without an in-memory sort
+                    new Index()
+                            .on("available", Sort.Direction.ASC)
+                            .on("category", Sort.Direction.ASC)
+                            .on("price", Sort.Direction.ASC)
+                            .on("_id", Sort.Direction.ASC)
+                            .named("available_category_price_id_ci")
+                            .collation(CASE_INSENSITIVE),
+                    new Index()
+                            .on("available", Sort.Direction.ASC)
+                            .on("category", Sort.Direction.ASC)
+                            .on("createdAt", Sort.Direction.DESC)
+                            .on("_id", Sort.Direction.DESC)
+                            .on("price", Sort.Direction.ASC)
+                            .named("available_category_createdAt_id_price_ci")
+                            .collation(CASE_INSENSITIVE),
+                    new Index()
+                            .on("available", Sort.Direction.ASC)
+                            .on("sellerHostel", Sort.Direction.ASC)
+                            .on("price", Sort.Direction.ASC)
+                            .on("_id", Sort.Direction.ASC)
+                            .named("available_sellerHostel_price_id_ci")
+                            .collation(CASE_INSENSITIVE),
+                    new Index()
+                            .on("available", Sort.Direction.ASC)
+                            .on("sellerHostel", Sort.Direction.ASC)
+                            .on("createdAt", Sort.Direction.DESC)
+                            .on("_id", Sort.Direction.DESC)
+                            .on("price", Sort.Direction.ASC)
+                            .named("available_sellerHostel_createdAt_id_price_ci")
+                            .collation(CASE_INSENSITIVE)
+            )
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    // before the query plan advisor looks at the plans
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void ensureIndexes() {
+
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mappingContext);
+
+        for (Class<?> type : INDEXED_DOCUMENTS) {
+
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+
+            for (IndexDefinition index : resolver.resolveIndexFor(type)) {
+                ensureIndex(indexOps, index, type);
+            }
+
+            for (IndexDefinition index : EXTRA_INDEXES.getOrDefault(type, List.of())) {
+                ensureIndex(indexOps, index, type);
+            }
+
+        }
+
+    }
+
+    private static void ensureIndex(IndexOperations indexOps, IndexDefinition index, Class<?> type) {
+
+        try {
+
+            indexOps.ensureIndex(index);
+
+        } catch (Exception e) {
+
+            log.error("Could not create index {} on {}", index.getIndexKeys(), type.getSimpleName(), e);
+
+        }
+
+    }
+}
@@ -0,0 +1,171 @@
+package com.banasthali.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bulkhead for multipart uploads (POST /api/items with an image). At most
+// max-concurrent run at once; up to queue-capacity more wait at most
+// max-wait for a slot, and anything beyond that gets 429 with Retry-After
+// straight away. This runs before Spring parses the multipart body, so a
+// rejected upload is never read to disk. An upload rejected at once frees
+// its request thread straight away; a queued one holds its thread for up to
+// max-wait, so at most max-concurrent + queue-capacity request threads are
+// ever taken by uploads.
+//
+// Metrics: uploads.bulkhead.active, uploads.bulkhead.queue (gauges),
+// uploads.bulkhead.wait (timer) and uploads.bulkhead.rejected (counter).
+@Component
+public class UploadBulkheadFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final int queueCapacity;
+    private final Duration maxWait;
+    private final Duration retryAfter;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+
+    public UploadBulkheadFilter(
+            MeterRegistry meterRegistry,
+            @Value("${file.bulkhead.max-concurrent:4}") int maxConcurrent,
+            @Value("${file.bulkhead.queue-capacity:16}") int queueCapacity,
+            @Value("${file.bulkhead.max-wait:PT5S}") Duration maxWait,
+            @Value("${file.bulkhead.retry-after:PT10S}") Duration retryAfter
+    ) {
+
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.queueCapacity = queueCapacity;
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("uploads.bulkhead.active", permits, p -> maxConcurrent - p.availablePermits())
+                .register(meterRegistry);
+
+        Gauge.builder("uploads.bulkhead.queue", waiting, AtomicInteger::get)
+                .register(meterRegistry);
+
+        this.waitTimer = Timer.builder("uploads.bulkhead.wait")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+
+        String contentType = request.getContentType();
+
+        return !"POST".equals(request.getMethod())
+                || contentType == null
+                || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        if (!permits.tryAcquire()) {
+
+            if (waiting.incrementAndGet() > queueCapacity) {
+
+                waiting.decrementAndGet();
+
+                reject(response, "queue_full");
+
+                return;
+
+            }
+
+            long start = System.nanoTime();
+
+            boolean admitted;
+
+            try {
+
+                admitted = permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+
+                admitted = false;
+
+            } finally {
+
+                waiting.decrementAndGet();
+
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            }
+
+            if (!admitted) {
+
+                reject(response, "timeout");
+
+                return;
+
+            }
+
+        } else {
+
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+
+        }
+
+        try {
+
+            filterChain.doFilter(request, response);
+
+        } finally {
+
+            permits.release();
+
+        }
+    }
+
+    private void reject(HttpServletResponse response, String reason) throws IOException {
+
+        meterRegistry.counter("uploads.bulkhead.rejected", "reason", reason).increment();
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("error", "Too Many Requests");
+        body.put("message", "Too many uploads in progress, please try again shortly");
+
+        mapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -1,17 +0,0 @@
-package com.banasthali.backend.config;
-
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-@Configuration
-public class WebConfig implements WebMvcConfigurer {
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Serve uploaded images from the uploads directory
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("classpath:/static/uploads/",
-                        "file:./uploads/");
-    }
-}
@@ -6,8 +6,12 @@ import com.banasthali.backend.service.AdminService;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -75,6 +79,39 @@ public class AdminController {
 
 
 
+    /// NDJSON EXPORT (users, items, bookings)
+    // streamed from a Mongo cursor, so memory stays flat however large the collection
+    @GetMapping("/export/{collection}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> export(
+
+            @PathVariable String collection
+
+    ){
+
+        if(!AdminService.isExportable(collection)){
+
+            throw new IllegalArgumentException(
+                    "collection must be users, items or bookings"
+            );
+
+        }
+
+        return ResponseEntity.ok()
+
+                .contentType(MediaType.APPLICATION_NDJSON)
+
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + collection + ".ndjson\""
+                )
+
+                .body(out -> adminService.export(collection, out));
+
+    }
+
+
+
     /// DASHBOARD STATS
     @GetMapping("/stats")
     @PreAuthorize("hasRole('ADMIN')")
@@ -1,9 +1,11 @@
 package com.banasthali.backend.controller;
 
+import com.banasthali.backend.dto.BusEta;
 import com.banasthali.backend.model.Post;
-import com.banasthali.backend.model.User;
 import com.banasthali.backend.repository.PostRepository;
-import com.banasthali.backend.repository.UserRepository;
+import com.banasthali.backend.service.DriverLocationRegistry;
+import com.banasthali.backend.service.PostMatrix;
+import com.banasthali.backend.service.routing.RoadRouter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,130 +16,102 @@ import java.util.*;
 @RequiredArgsConstructor
 public class BusController {
 
-    private final UserRepository userRepository;
     private final PostRepository postRepository;
+    private final DriverLocationRegistry driverLocationRegistry;
+    private final RoadRouter roadRouter;
+    private final PostMatrix postMatrix;
 
 
+    // available buses soonest at the stop first
     @GetMapping("/eta/{postId}")
-    public List<Map<String,Object>> getBusETA(
-
-            @PathVariable String postId
-    ){
-
-        Post stop = postRepository
-                .findById(postId)
-                .orElseThrow(() ->
-                        new RuntimeException(
-                                "Post not found with id: " + postId
-                        ));
-
-
-        List<User> drivers =
-                userRepository
-                        .findByRoleAndDriverAvailableTrue(
-                                "DRIVER"
-                        );
-
-
-        List<Map<String,Object>> result =
-                new ArrayList<>();
-
-
-        for(User d : drivers){
-
-            if(d.getLatitude() == null)
-                continue;
+    public List<BusEta> getBusETA(
 
+            @PathVariable String postId,
 
-            double eta =
-                    calculateETA(
+            @RequestParam(required = false) Integer limit,
 
-                            d.getLatitude(),
-                            d.getLongitude(),
-
-                            stop.getLatitude(),
-                            stop.getLongitude()
-
-                    );
-
-
-            Map<String,Object> bus =
-                    new HashMap<>();
-
-
-            bus.put("driverId", d.getId());
-
-            bus.put("etaMinutes", eta);
-
-            bus.put("latitude", d.getLatitude());
-
-            bus.put("longitude", d.getLongitude());
+            @RequestParam(required = false) Double radiusKm
+    ){
 
+        if(limit != null && limit < 1){
 
-            result.add(bus);
+            throw new IllegalArgumentException(
+                    "limit must be at least 1"
+            );
 
         }
 
+        if(radiusKm != null && radiusKm <= 0){
 
-        return result;
-
-    }
-
+            throw new IllegalArgumentException(
+                    "radiusKm must be positive"
+            );
 
+        }
 
-    private double calculateETA(
+        // from memory; a miss reads the post to say what is wrong with it
+        PostMatrix.Coordinates stop = postMatrix
+                .coordinates(postId)
+                .orElseGet(() -> coordinatesOf(postId));
 
-            double busLat,
-            double busLng,
-            double stopLat,
-            double stopLng
-    ){
 
-        double R = 6371;
+        // by road the nearest buses are not always the soonest,
+        // so every bus in the radius is routed before limiting
+        List<DriverLocationRegistry.NearbyDriver> nearby =
+                driverLocationRegistry.nearestAvailable(
 
-        double dLat = Math.toRadians(stopLat - busLat);
+                        stop.latitude(),
+                        stop.longitude(),
 
-        double dLon = Math.toRadians(stopLng - busLng);
+                        roadRouter.enabled() ? null : limit,
 
+                        radiusKm == null ? null : radiusKm * 1000
 
-        double a =
-
-                Math.sin(dLat/2) * Math.sin(dLat/2)
+                );
 
-                        +
 
-                        Math.cos(Math.toRadians(busLat))
+        List<BusEta> result =
+                new ArrayList<>(nearby.size());
 
-                                *
 
-                                Math.cos(Math.toRadians(stopLat))
+        for(DriverLocationRegistry.NearbyDriver bus : nearby){
 
-                                *
+            // straight line when there is no road graph or no road to the stop
+            RoadRouter.Route route = roadRouter
+                    .route(
 
-                                Math.sin(dLon/2)
+                            bus.location().latitude(),
+                            bus.location().longitude(),
 
-                                *
+                            stop.latitude(),
+                            stop.longitude()
 
-                                Math.sin(dLon/2);
+                    )
+                    .orElse(null);
 
+            result.add(new BusEta(
 
+                    bus.location().driverId(),
 
-        double c = 2 * Math.atan2(
+                    route != null ? route.seconds() / 60 : PostMatrix.etaMinutes(bus.distanceMeters()),
 
-                Math.sqrt(a),
+                    (route != null ? route.meters() : bus.distanceMeters()) / 1000,
 
-                Math.sqrt(1-a)
+                    bus.location().latitude(),
 
-        );
+                    bus.location().longitude()
 
+            ));
 
-        double distance = R * c;
+        }
 
 
-        double avgSpeed = 25;
+        result.sort(Comparator.comparingDouble(BusEta::etaMinutes));
 
 
-        return (distance / avgSpeed) * 60;
+        return limit != null && result.size() > limit
+                ? result.subList(0, limit)
+                : result;
 
     }
     //update driver location
@@ -161,23 +135,28 @@ public class BusController {
                 );
 
 
-        User driver =
-                userRepository
-                        .findById(driverId)
-                        .orElseThrow(() ->
-                                new RuntimeException(
-                                        "Driver not found"
-                                )
-                        );
+        // checked once; later pings are answered from memory
+        driverLocationRegistry
+                .get(driverId)
+                .orElseThrow(() ->
+                        new RuntimeException(
+                                "Driver not found"
+                        )
+                );
 
 
-        driver.setLatitude(latitude);
+        // written to Mongo by the next flush
+        driverLocationRegistry.update(
 
-        driver.setLongitude(longitude);
+                driverId,
 
-        driver.setDriverAvailable(true);
+                latitude,
 
-        userRepository.save(driver);
+                longitude,
+
+                true
+
+        );
 
 
         Map<String,String> response =
@@ -196,9 +175,9 @@ public class BusController {
             @PathVariable String driverId
     ){
 
-        User driver =
-                userRepository
-                        .findById(driverId)
+        DriverLocationRegistry.DriverLocation driver =
+                driverLocationRegistry
+                        .get(driverId)
                         .orElseThrow(() ->
                                 new RuntimeException(
                                         "Driver not found"
@@ -211,20 +190,44 @@ public class BusController {
 
 
         response.put("driverId",
-                driver.getId());
+                driver.driverId());
 
         response.put("latitude",
-                driver.getLatitude());
+                driver.latitude());
 
         response.put("longitude",
-                driver.getLongitude());
+                driver.longitude());
 
         response.put("isOnline",
-                driver.getDriverAvailable());
+                driver.available());
 
 
         return response;
 
     }
 
+    // posts the matrix does not know: unknown, without coordinates, or
+    // added before the matrix was first built
+    private PostMatrix.Coordinates coordinatesOf(String postId){
+
+        Post post = postRepository
+                .findById(postId)
+                .orElseThrow(() ->
+                        new RuntimeException(
+                                "Post not found with id: " + postId
+                        ));
+
+
+        if(post.getLatitude() == null || post.getLongitude() == null){
+
+            throw new IllegalArgumentException(
+                    "Post has no coordinates"
+            );
+
+        }
+
+        return new PostMatrix.Coordinates(post.getLatitude(), post.getLongitude());
+
+    }
+
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ import com.banasthali.backend.dto.driver.DriverResponseDTO;
 import com.banasthali.backend.model.Booking;
 import com.banasthali.backend.service.DriverService;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -61,6 +62,7 @@ public class DriverController {
 
             Authentication auth,
 
+            @Valid
             @RequestBody
             DriverStatusUpdateRequest request) {
 
@@ -85,6 +87,7 @@ public class DriverController {
 
             Authentication auth,
 
+            @Valid
             @RequestBody
             DriverLocationUpdateRequest request) {
 
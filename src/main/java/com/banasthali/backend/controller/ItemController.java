@@ -1,9 +1,15 @@
 package com.banasthali.backend.controller;
 
+import com.banasthali.backend.dto.BulkImportResult;
+import com.banasthali.backend.dto.ItemFacets;
 import com.banasthali.backend.dto.ItemRequest;
 import com.banasthali.backend.dto.ItemResponse;
+import com.banasthali.backend.dto.ItemSuggestion;
 import com.banasthali.backend.model.User;
+import com.banasthali.backend.repository.ItemFilter;
+import com.banasthali.backend.service.ItemImportService;
 import com.banasthali.backend.service.ItemService;
+import com.banasthali.backend.service.ItemVersions;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -13,6 +19,7 @@ import jakarta.validation.Valid;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -21,8 +28,11 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +43,16 @@ import java.util.Map;
 @Tag(name = "Items", description = "Item APIs")
 public class ItemController {
 
+    private static final String VIEW_FULL = "full";
+
+    private static final String VIEW_CARD = "card";
+
     private final ItemService itemService;
 
+    private final ItemVersions itemVersions;
+
+    private final ItemImportService itemImportService;
+
     // CREATE ITEM WITH IMAGE
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("isAuthenticated()")
@@ -95,13 +113,75 @@ public class ItemController {
     }
 
 
+    // CREATE MANY ITEMS FROM A JSON ARRAY OR NDJSON
+    @PostMapping(
+            value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}
+    )
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Create items in bulk")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<BulkImportResult> bulkCreateItems(
+
+            InputStream body,
+
+            @AuthenticationPrincipal User seller
+    ) throws IOException {
+
+        return ResponseEntity.ok(
+
+                itemImportService.importItems(body,seller)
+
+        );
+
+    }
+
+
     // GET ALL ITEMS
+    // pass limit and/or cursor to get a keyset page instead of the full list,
+    // view=card for the slim list view
     @GetMapping
-    public ResponseEntity<List<ItemResponse>> getAllItems(){
+    public ResponseEntity<?> getAllItems(
 
-        return ResponseEntity.ok(
+            @RequestParam(value = "cursor", required = false) String cursor,
+
+            @RequestParam(value = "limit", required = false) Integer limit,
 
-                itemService.getAllItems()
+            @RequestParam(value = "view", defaultValue = VIEW_FULL) String view,
+
+            WebRequest webRequest
+    ){
+
+        boolean paged = cursor != null || limit != null;
+
+        boolean card = isCardView(view);
+
+        // answered from the in-memory feed version, before any read
+        String etag = itemVersions.feedETag();
+
+        if(etag != null && webRequest.checkNotModified(etag)){
+
+            return notModified();
+
+        }
+
+        if(card){
+
+            return revalidated().body(
+
+                    paged
+                            ? itemService.getItemCardsPage(cursor,limit)
+                            : itemService.getItemCards()
+
+            );
+
+        }
+
+        return revalidated().body(
+
+                paged
+                        ? itemService.getItemsPage(cursor,limit)
+                        : itemService.getAllItems()
 
         );
 
@@ -110,14 +190,59 @@ public class ItemController {
 
     // SEARCH ITEMS
     @GetMapping("/search")
-    public ResponseEntity<List<ItemResponse>> searchItems(
+    public ResponseEntity<?> searchItems(
+
+            @RequestParam("query") String query,
 
-            @RequestParam("query") String query
+            @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy,
+
+            @RequestParam(value = "view", defaultValue = VIEW_FULL) String view
     ){
 
+        if(isCardView(view)){
+
+            return ResponseEntity.ok(
+
+                    itemService.searchItemCards(query, fuzzy)
+
+            );
+
+        }
+
         return ResponseEntity.ok(
 
-                itemService.searchItems(query)
+                itemService.searchItems(query, fuzzy)
+
+        );
+
+    }
+
+
+    // AUTOCOMPLETE TITLES AND CATEGORIES
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ItemSuggestion>> suggest(
+
+            @RequestParam("prefix") String prefix,
+
+            @RequestParam(value = "limit", required = false) Integer limit
+    ){
+
+        return ResponseEntity.ok(
+
+                itemService.suggest(prefix,limit)
+
+        );
+
+    }
+
+
+    // CATEGORY AND PRICE COUNTS
+    @GetMapping("/facets")
+    public ResponseEntity<ItemFacets> getFacets(){
+
+        return ResponseEntity.ok(
+
+                itemService.getFacets()
 
         );
 
@@ -126,11 +251,23 @@ public class ItemController {
 
     // FILTER BY CATEGORY
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ItemResponse>> getItemsByCategory(
+    public ResponseEntity<?> getItemsByCategory(
 
-            @PathVariable String category
+            @PathVariable String category,
+
+            @RequestParam(value = "view", defaultValue = VIEW_FULL) String view
     ){
 
+        if(isCardView(view)){
+
+            return ResponseEntity.ok(
+
+                    itemService.getItemCardsByCategory(category)
+
+            );
+
+        }
+
         return ResponseEntity.ok(
 
                 itemService.getItemsByCategory(category)
@@ -140,21 +277,92 @@ public class ItemController {
     }
 
 
+    // FILTER BY CATEGORY, PRICE RANGE AND HOSTEL
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterItems(
+
+            @RequestParam(value = "category", required = false) String category,
+
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+
+            @RequestParam(value = "sellerHostel", required = false) String sellerHostel,
+
+            @RequestParam(value = "available", defaultValue = "true") boolean available,
+
+            @RequestParam(value = "sort", defaultValue = "newest") String sort,
+
+            @RequestParam(value = "limit", required = false) Integer limit,
+
+            @RequestParam(value = "view", defaultValue = VIEW_FULL) String view
+    ){
+
+        ItemFilter filter = new ItemFilter(
+                category,
+                minPrice,
+                maxPrice,
+                sellerHostel,
+                available,
+                ItemFilter.Sort.parse(sort)
+        );
+
+        if(isCardView(view)){
+
+            return ResponseEntity.ok(
+
+                    itemService.filterItemCards(filter,limit)
+
+            );
+
+        }
+
+        return ResponseEntity.ok(
+
+                itemService.filterItems(filter,limit)
+
+        );
+
+    }
+
+
     // GET ITEM BY ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getItemById(
 
-            @PathVariable String id
+            @PathVariable String id,
+
+            WebRequest webRequest
     ){
 
-        try{
+        // known items are answered without loading them
+        String knownETag = itemVersions.itemETag(id);
 
-            return ResponseEntity.ok(
+        if(knownETag != null && webRequest.checkNotModified(knownETag)){
 
-                    itemService.getItemById(id)
+            return notModified();
+
+        }
 
+        try{
+
+            ItemResponse item = itemService.getItemById(id);
+
+            String etag = ItemVersions.itemETag(
+                    item.getId(),
+                    item.getUpdatedAt(),
+                    item.getCreatedAt()
             );
 
+            // the tracked version may lag the stored item by one write
+            if(!etag.equals(knownETag) && webRequest.checkNotModified(etag)){
+
+                return notModified();
+
+            }
+
+            return revalidated().body(item);
+
         }
         catch(Exception e){
 
@@ -169,14 +377,28 @@ public class ItemController {
 
     // GET ITEMS BY SELLER
     @GetMapping("/seller/{sellerId}")
-    public ResponseEntity<List<ItemResponse>> getItemsBySeller(
+    public ResponseEntity<?> getItemsBySeller(
+
+            @PathVariable String sellerId,
+
+            @RequestParam(value = "cursor", required = false) String cursor,
 
-            @PathVariable String sellerId
+            @RequestParam(value = "limit", required = false) Integer limit
     ){
 
+        if(cursor == null && limit == null){
+
+            return ResponseEntity.ok(
+
+                    itemService.getItemsBySeller(sellerId)
+
+            );
+
+        }
+
         return ResponseEntity.ok(
 
-                itemService.getItemsBySeller(sellerId)
+                itemService.getItemsBySellerPage(sellerId,cursor,limit)
 
         );
 
@@ -274,4 +496,45 @@ public class ItemController {
 
     }
 
+
+    // checkNotModified has already set the ETag header; clients may store
+    // the response but must revalidate it with If-None-Match
+    private static ResponseEntity.BodyBuilder revalidated(){
+
+        return ResponseEntity.ok()
+
+                .cacheControl(CacheControl.noCache());
+
+    }
+
+    private static ResponseEntity<?> notModified(){
+
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+
+                .cacheControl(CacheControl.noCache())
+
+                .build();
+
+    }
+
+    private static boolean isCardView(String view){
+
+        if(VIEW_CARD.equalsIgnoreCase(view)){
+
+            return true;
+
+        }
+
+        if(VIEW_FULL.equalsIgnoreCase(view)){
+
+            return false;
+
+        }
+
+        throw new IllegalArgumentException(
+                "view must be 'full' or 'card'"
+        );
+
+    }
+
 }
\ No newline at end of file
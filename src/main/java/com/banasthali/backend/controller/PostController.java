@@ -1,7 +1,14 @@
 package com.banasthali.backend.controller;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,9 +18,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.banasthali.backend.dto.PostDistanceMatrix;
 import com.banasthali.backend.model.Post;
 import com.banasthali.backend.repository.PostRepository;
+import com.banasthali.backend.service.PostMatrix;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -26,11 +38,49 @@ import lombok.RequiredArgsConstructor;
 public class PostController {
 
     private final PostRepository postRepository;
+    private final PostMatrix postMatrix;
+    private final ObjectMapper objectMapper;
+
+    // Posts are only written through this controller, so a counter bumped after
+    // each write versions the list. The start time keeps tags unique across restarts.
+    private final long bootTime = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    // false with several instances, whose counters never see each other's writes;
+    // the tags are then a SHA-256 of the body about to be sent, so equal tags
+    // mean equal bodies on every instance
+    @Value("${etags.in-memory:true}")
+    private boolean inMemoryETags;
 
     @GetMapping
     @Operation(summary = "List all posts")
-    public List<Post> list() {
-        return postRepository.findAll();
+    public ResponseEntity<List<Post>> list(WebRequest webRequest) {
+        if (!inMemoryETags) {
+            List<Post> posts = postRepository.findAll();
+            if (webRequest.checkNotModified("\"posts-" + sha256(posts) + "\"")) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache()).build();
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(posts);
+        }
+        String etag = "\"posts-" + bootTime + "-" + version.get() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(postRepository.findAll());
+    }
+
+    @GetMapping("/matrix")
+    @Operation(summary = "Distances and bus ETAs between every pair of posts")
+    public ResponseEntity<PostDistanceMatrix> matrix(WebRequest webRequest) {
+        PostDistanceMatrix view = postMatrix.view();
+        // each instance rebuilds its own matrix, so without the shared counter the tag comes from the view
+        String etag = inMemoryETags
+                ? "\"posts-matrix-" + bootTime + "-" + version.get() + "\""
+                : "\"posts-matrix-" + sha256(view) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(view);
     }
 
     @PostMapping
@@ -38,6 +88,8 @@ public class PostController {
     @Operation(summary = "Create a post (admin only)")
     public ResponseEntity<Post> create(@RequestBody Post p) {
         Post saved = postRepository.save(p);
+        postMatrix.rebuild();
+        version.incrementAndGet();
         return ResponseEntity.ok(saved);
     }
 
@@ -46,6 +98,18 @@ public class PostController {
     @Operation(summary = "Delete a post (admin only)")
     public ResponseEntity<Void> delete(@PathVariable String id) {
         postRepository.deleteById(id);
+        postMatrix.rebuild();
+        version.incrementAndGet();
         return ResponseEntity.noContent().build();
     }
+
+    // over the JSON as served, so any change to any field gives a new tag
+    private String sha256(Object body) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(body)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not compute the ETag", e);
+        }
+    }
 }
@@ -0,0 +1,90 @@
+package com.banasthali.backend.controller;
+
+import com.banasthali.backend.dto.SavedSearchRequest;
+import com.banasthali.backend.model.SavedSearch;
+import com.banasthali.backend.model.User;
+import com.banasthali.backend.service.SavedSearchService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import jakarta.validation.Valid;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/saved-searches")
+@RequiredArgsConstructor
+@PreAuthorize("isAuthenticated()")
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Saved searches", description = "Alerts for new listings matching a query")
+public class SavedSearchController {
+
+    private final SavedSearchService savedSearchService;
+
+    // SAVE A SEARCH
+    @PostMapping
+    @Operation(summary = "Save a search and get new matching listings on /topic/user/{userId}")
+    public ResponseEntity<SavedSearch> create(
+
+            @Valid @RequestBody SavedSearchRequest request,
+
+            @AuthenticationPrincipal User user
+    ){
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+
+                .body(savedSearchService.create(request,user));
+
+    }
+
+
+    // MY SAVED SEARCHES
+    @GetMapping
+    @Operation(summary = "List my saved searches")
+    public ResponseEntity<List<SavedSearch>> list(
+
+            @AuthenticationPrincipal User user
+    ){
+
+        return ResponseEntity.ok(
+
+                savedSearchService.getForUser(user)
+
+        );
+
+    }
+
+
+    // DELETE A SAVED SEARCH
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Delete a saved search")
+    public ResponseEntity<?> delete(
+
+            @PathVariable String id,
+
+            @AuthenticationPrincipal User user
+    ){
+
+        savedSearchService.delete(id,user);
+
+        return ResponseEntity.ok(
+
+                Map.of("message","Saved search deleted")
+
+        );
+
+    }
+}
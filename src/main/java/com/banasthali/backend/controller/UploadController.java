@@ -0,0 +1,271 @@
+package com.banasthali.backend.controller;
+
+import com.banasthali.backend.service.UploadFileIndex;
+import com.banasthali.backend.service.storage.UploadStorage;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Serves uploaded images. Replaces the static resource handler, which
+// stat'ed the file on every request and sent no caching headers.
+//
+// Supports conditional requests (ETag / Last-Modified), a single byte range
+// and Tomcat sendfile, so large images are copied by the kernel without
+// passing through the JVM. Sendfile needs a local file; with GridFS that is
+// the read-through disk cache, and without one the file is streamed, as are
+// the images bundled in the jar.
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Uploads", description = "Uploaded item images")
+public class UploadController {
+
+    // below this a plain copy is cheaper than handing the file to the poller
+    // (the same threshold Tomcat's DefaultServlet uses)
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final UploadFileIndex uploadFileIndex;
+    private final UploadStorage uploadStorage;
+
+    // SERVE AN UPLOAD (GET and HEAD)
+    @GetMapping("/uploads/{name}")
+    @Operation(summary = "Get an uploaded image; supports If-None-Match and Range")
+    public void serve(
+
+            @PathVariable String name,
+
+            HttpServletRequest request,
+
+            HttpServletResponse response
+
+    ) throws IOException {
+
+        UploadFileIndex.UploadFile file = uploadFileIndex.lookup(name).orElse(null);
+
+        if (file == null) {
+
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+
+            return;
+
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, file.cacheControl());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // sets ETag and Last-Modified, and 304 when the client copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(file.eTag(), file.lastModified())) {
+            return;
+        }
+
+        long start = 0;
+        long end = file.size() - 1;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        if (rangeHeader != null && ifRangeMatches(request, file)) {
+
+            List<HttpRange> ranges;
+
+            try {
+
+                ranges = HttpRange.parseRanges(rangeHeader);
+
+            } catch (IllegalArgumentException e) {
+
+                // a malformed Range header is ignored
+                ranges = List.of();
+
+            }
+
+            // several ranges would need a multipart body; the whole file is sent instead
+            if (ranges.size() == 1) {
+
+                try {
+
+                    start = ranges.get(0).getRangeStart(file.size());
+                    end = ranges.get(0).getRangeEnd(file.size());
+
+                    // HttpRange only caps the end, a start past the file is ours to reject
+                    if (start >= file.size() || start > end) {
+                        throw new IllegalArgumentException("Range starts past the end of " + name);
+                    }
+
+                } catch (IllegalArgumentException e) {
+
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+
+                    return;
+
+                }
+
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.size());
+
+            }
+
+        }
+
+        long length = end - start + 1;
+
+        response.setContentType(file.contentType());
+        response.setContentLengthLong(length);
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        try {
+
+            Path local = file.bundled() ? null : uploadStorage.localPath(name).orElse(null);
+
+            if (local == null) {
+
+                // no local copy (GridFS without a disk cache, or inside the jar): streamed chunk by chunk
+                try (InputStream in = file.bundled() ? uploadFileIndex.openBundled(name) : uploadStorage.open(name)) {
+
+                    in.skipNBytes(start);
+
+                    copy(in, response.getOutputStream(), length);
+
+                }
+
+                return;
+
+            }
+
+            if (length >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+
+                // Tomcat writes the file after the request returns; end is exclusive
+                request.setAttribute(SENDFILE_FILENAME, local.toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+
+                return;
+
+            }
+
+            try (FileChannel channel = FileChannel.open(local, StandardOpenOption.READ)) {
+
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+
+                long position = start;
+
+                while (position <= end) {
+
+                    long sent = channel.transferTo(position, end + 1 - position, out);
+
+                    if (sent <= 0) {
+                        break;
+                    }
+
+                    position += sent;
+
+                }
+
+            }
+
+        } catch (NoSuchFileException e) {
+
+            // deleted after the metadata was cached
+            uploadFileIndex.evict(name);
+
+            if (!response.isCommitted()) {
+
+                response.reset();
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+
+            }
+
+        }
+
+    }
+
+    private static void copy(
+            InputStream in,
+            OutputStream out,
+            long length
+    ) throws IOException {
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        long remaining = length;
+
+        while (remaining > 0) {
+
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+            if (read == -1) {
+                break;
+            }
+
+            out.write(buffer, 0, read);
+
+            remaining -= read;
+
+        }
+
+    }
+
+    // If-Range: the range applies only if the client still has this version
+    private static boolean ifRangeMatches(
+            HttpServletRequest request,
+            UploadFileIndex.UploadFile file
+    ) {
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(file.eTag());
+        }
+
+        try {
+
+            // HTTP dates have second precision
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == file.lastModified() / 1000;
+
+        } catch (IllegalArgumentException e) {
+
+            return false;
+
+        }
+
+    }
+}
@@ -4,6 +4,7 @@ import com.banasthali.backend.dto.ChangePasswordRequest;
 import com.banasthali.backend.dto.DriverAvailabilityRequest;
 import com.banasthali.backend.dto.LocationUpdateRequest;
 import com.banasthali.backend.dto.UpdateProfileRequest;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -91,7 +92,7 @@ public class UserController {
 
             @AuthenticationPrincipal User user,
 
-            @RequestBody LocationUpdateRequest request
+            @Valid @RequestBody LocationUpdateRequest request
     ){
 
         return userService.updateDriverLocation(
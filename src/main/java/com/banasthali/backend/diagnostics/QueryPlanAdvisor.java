@@ -0,0 +1,412 @@
+package com.banasthali.backend.diagnostics;
+
+import com.banasthali.backend.repository.BookingRepository;
+import com.banasthali.backend.repository.DriverRepository;
+import com.banasthali.backend.repository.ItemRepository;
+import com.banasthali.backend.repository.MessageRepository;
+import com.banasthali.backend.repository.SavedSearchRepository;
+import com.banasthali.backend.repository.UserRepository;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Explains the query behind every custom repository method and flags plans
+// that scan the collection. Runs once at startup and on demand through the
+// /actuator/queryplans endpoint.
+//
+// Spring Data does not expose the query a derived method compiles to, so
+// PROBES restates each one; methods declared on the repositories without a
+// probe are listed in the report so the catalog cannot silently fall behind.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueryPlanAdvisor {
+
+    private static final List<Class<?>> REPOSITORIES = List.of(
+            ItemRepository.class,
+            BookingRepository.class,
+            UserRepository.class,
+            MessageRepository.class,
+            DriverRepository.class,
+            SavedSearchRepository.class
+    );
+
+    private static final String PLACEHOLDER = "__query_plan_probe__";
+
+    private static final Collation CASE_INSENSITIVE = Collation.builder()
+            .locale("en")
+            .collationStrength(CollationStrength.SECONDARY)
+            .build();
+
+    private static final Document NEWEST_FIRST = new Document("createdAt", -1).append("_id", -1);
+
+    private static final List<QueryProbe> PROBES = List.of(
+
+            // ItemRepository
+            QueryProbe.of(ItemRepository.class, "findByAvailableTrueOrderByCreatedAtDesc", "items",
+                            new Document("available", true))
+                    .sortedBy(new Document("createdAt", -1)),
+            QueryProbe.of(ItemRepository.class, "findBySellerIdOrderByCreatedAtDesc", "items",
+                            new Document("sellerId", PLACEHOLDER))
+                    .sortedBy(new Document("createdAt", -1)),
+            // regex over free text; kept only as the fallback while the search index loads
+            QueryProbe.of(ItemRepository.class, "searchItems", "items",
+                    new Document("$or", List.of(
+                            new Document("title", new Document("$regex", PLACEHOLDER).append("$options", "i")),
+                            new Document("description", new Document("$regex", PLACEHOLDER).append("$options", "i")),
+                            new Document("category", new Document("$regex", PLACEHOLDER).append("$options", "i"))
+                    )).append("available", true)),
+            QueryProbe.of(ItemRepository.class, "findByCategoryIgnoreCaseAndAvailableTrue", "items",
+                            new Document("category", PLACEHOLDER).append("available", true))
+                    .collatedBy(CASE_INSENSITIVE),
+            QueryProbe.of(ItemRepository.class, "findAvailablePage", "items",
+                            new Document("available", true).append("$or", keysetAfter()))
+                    .sortedBy(NEWEST_FIRST)
+                    .limitedTo(21),
+            QueryProbe.of(ItemRepository.class, "findSellerPage", "items",
+                            new Document("sellerId", PLACEHOLDER).append("$or", keysetAfter()))
+                    .sortedBy(NEWEST_FIRST)
+                    .limitedTo(21),
+            QueryProbe.of(ItemRepository.class, "setImageVariants", "items",
+                    new Document("_id", new ObjectId())),
+            // findFiltered, one probe per index it is meant to use
+            QueryProbe.of(ItemRepository.class, "findFiltered", "items",
+                            new Document("available", true)
+                                    .append("category", PLACEHOLDER)
+                                    .append("price", new Document("$gte", 100).append("$lte", 1000)))
+                    .sortedBy(new Document("price", 1).append("_id", 1))
+                    .collatedBy(CASE_INSENSITIVE)
+                    .limitedTo(20),
+            QueryProbe.of(ItemRepository.class, "findFiltered", "items",
+                            new Document("available", true)
+                                    .append("category", PLACEHOLDER)
+                                    .append("price", new Document("$lte", 1000)))
+                    .sortedBy(NEWEST_FIRST)
+                    .collatedBy(CASE_INSENSITIVE)
+                    .limitedTo(20),
+            QueryProbe.of(ItemRepository.class, "findFiltered", "items",
+                            new Document("available", true)
+                                    .append("sellerHostel", PLACEHOLDER)
+                                    .append("price", new Document("$gte", 100)))
+                    .sortedBy(new Document("price", -1).append("_id", -1))
+                    .collatedBy(CASE_INSENSITIVE)
+                    .limitedTo(20),
+            QueryProbe.of(ItemRepository.class, "findFiltered", "items",
+                            new Document("available", true)
+                                    .append("sellerHostel", PLACEHOLDER))
+                    .sortedBy(NEWEST_FIRST)
+                    .collatedBy(CASE_INSENSITIVE)
+                    .limitedTo(20),
+            QueryProbe.of(ItemRepository.class, "findFiltered", "items",
+                            new Document("available", true)
+                                    .append("price", new Document("$gte", 100).append("$lte", 1000)))
+                    .sortedBy(new Document("price", 1).append("_id", 1))
+                    .collatedBy(CASE_INSENSITIVE)
+                    .limitedTo(20),
+
+            // BookingRepository
+            QueryProbe.of(BookingRepository.class, "findByPassengerId", "bookings",
+                    new Document("passengerId", PLACEHOLDER)),
+            QueryProbe.of(BookingRepository.class, "findByDriverId", "bookings",
+                    new Document("driverId", PLACEHOLDER)),
+            QueryProbe.of(BookingRepository.class, "findByStatus", "bookings",
+                    new Document("status", "PENDING")),
+            QueryProbe.of(BookingRepository.class, "findByDriverIdIsNullAndStatus", "bookings",
+                    new Document("driverId", null).append("status", "PENDING")),
+
+            // UserRepository
+            QueryProbe.of(UserRepository.class, "findByEmail", "users",
+                    new Document("email", PLACEHOLDER)),
+            QueryProbe.of(UserRepository.class, "existsByEmail", "users",
+                            new Document("email", PLACEHOLDER))
+                    .limitedTo(1),
+            QueryProbe.of(UserRepository.class, "findByRoleAndDriverAvailableTrue", "users",
+                    new Document("role", "DRIVER").append("driverAvailable", true)),
+            QueryProbe.of(UserRepository.class, "findByRoleAndDriverAvailable", "users",
+                    new Document("role", "DRIVER").append("driverAvailable", true)),
+            QueryProbe.of(UserRepository.class, "countByRole", "users",
+                    new Document("role", "DRIVER")),
+            QueryProbe.of(UserRepository.class, "findByResetToken", "users",
+                    new Document("resetToken", PLACEHOLDER)),
+
+            // MessageRepository
+            QueryProbe.of(MessageRepository.class, "findByBookingIdOrderByTimestampAsc", "messages",
+                            new Document("bookingId", PLACEHOLDER))
+                    .sortedBy(new Document("timestamp", 1)),
+
+            // DriverRepository
+            QueryProbe.of(DriverRepository.class, "findByEmail", "drivers",
+                    new Document("email", PLACEHOLDER)),
+            QueryProbe.of(DriverRepository.class, "findByIsOnlineTrueAndLocationNear", "drivers",
+                    new Document("isOnline", true).append("location", new Document("$nearSphere",
+                            new Document("$geometry", new Document("type", "Point")
+                                    .append("coordinates", List.of(75.87, 26.40)))
+                                    .append("$maxDistance", 1000)))),
+
+            // SavedSearchRepository
+            QueryProbe.of(SavedSearchRepository.class, "findByUserIdOrderByCreatedAtDesc", "saved_searches",
+                            new Document("userId", PLACEHOLDER))
+                    .sortedBy(new Document("createdAt", -1)),
+            QueryProbe.of(SavedSearchRepository.class, "countByUserId", "saved_searches",
+                    new Document("userId", PLACEHOLDER))
+    );
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${mongo.query-advisor.run-on-startup:true}")
+    private boolean runOnStartup;
+
+    private volatile QueryPlanReport lastReport;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void analyzeOnStartup() {
+
+        if (!runOnStartup) {
+            return;
+        }
+
+        try {
+
+            QueryPlanReport report = analyze();
+
+            for (QueryPlanReport.Entry entry : report.queries()) {
+
+                if (entry.collectionScan()) {
+                    log.warn("COLLSCAN: {}.{} on {}", entry.repository(), entry.method(), entry.collection());
+                }
+
+            }
+
+            if (!report.unprobedMethods().isEmpty()) {
+                log.warn("Repository methods without a query plan probe: {}", report.unprobedMethods());
+            }
+
+        } catch (Exception e) {
+
+            log.error("Query plan analysis failed", e);
+
+        }
+    }
+
+    public QueryPlanReport lastReport() {
+        return lastReport;
+    }
+
+    public QueryPlanReport analyze() {
+
+        List<QueryPlanReport.Entry> entries = new ArrayList<>();
+
+        int collectionScans = 0;
+
+        for (QueryProbe probe : PROBES) {
+
+            QueryPlanReport.Entry entry = explain(probe);
+
+            if (entry.collectionScan()) {
+                collectionScans++;
+            }
+
+            entries.add(entry);
+
+        }
+
+        QueryPlanReport report = new QueryPlanReport(
+                LocalDateTime.now(),
+                collectionScans,
+                entries,
+                unprobedMethods()
+        );
+
+        lastReport = report;
+
+        return report;
+    }
+
+    private QueryPlanReport.Entry explain(QueryProbe probe) {
+
+        String repository = probe.repository().getSimpleName();
+
+        try {
+
+            FindIterable<Document> find = mongoTemplate.getCollection(probe.collection())
+                    .find(probe.filter());
+
+            if (probe.sort() != null) {
+                find = find.sort(probe.sort());
+            }
+
+            if (probe.limit() != null) {
+                find = find.limit(probe.limit());
+            }
+
+            if (probe.collation() != null) {
+                find = find.collation(probe.collation());
+            }
+
+            Document explain = find.explain(ExplainVerbosity.EXECUTION_STATS);
+
+            Document planner = explain.get("queryPlanner", Document.class);
+
+            Set<String> stages = new LinkedHashSet<>();
+            Set<String> indexes = new LinkedHashSet<>();
+
+            collectStages(planner == null ? null : planner.get("winningPlan"), stages, indexes);
+
+            Document stats = explain.get("executionStats", Document.class);
+
+            long keysExamined = number(stats, "totalKeysExamined");
+            long docsExamined = number(stats, "totalDocsExamined");
+            long returned = number(stats, "nReturned");
+
+            return new QueryPlanReport.Entry(
+                    repository,
+                    probe.method(),
+                    probe.collection(),
+                    List.copyOf(stages),
+                    List.copyOf(indexes),
+                    stages.contains("COLLSCAN"),
+                    keysExamined,
+                    docsExamined,
+                    returned,
+                    returned == 0 ? docsExamined : (double) docsExamined / returned,
+                    number(stats, "executionTimeMillis"),
+                    null
+            );
+
+        } catch (Exception e) {
+
+            return new QueryPlanReport.Entry(
+                    repository, probe.method(), probe.collection(),
+                    List.of(), List.of(), false, 0, 0, 0, 0, 0,
+                    e.getMessage()
+            );
+
+        }
+    }
+
+    // Walks inputStage / inputStages (and the queryPlan wrapper newer servers add).
+    private static void collectStages(Object node, Set<String> stages, Set<String> indexes) {
+
+        if (node instanceof Document plan) {
+
+            if (plan.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+
+            if (plan.get("indexName") instanceof String indexName) {
+                indexes.add(indexName);
+            }
+
+            for (Object child : plan.values()) {
+                collectStages(child, stages, indexes);
+            }
+
+        } else if (node instanceof List<?> children) {
+
+            for (Object child : children) {
+                collectStages(child, stages, indexes);
+            }
+
+        }
+    }
+
+    private static long number(Document document, String key) {
+
+        return document != null && document.get(key) instanceof Number value
+                ? value.longValue()
+                : 0;
+    }
+
+    private static List<Document> keysetAfter() {
+
+        Date createdAt = new Date();
+
+        return List.of(
+                new Document("createdAt", new Document("$lt", createdAt)),
+                new Document("createdAt", createdAt).append("_id", new Document("$lt", new ObjectId()))
+        );
+    }
+
+    private static List<String> unprobedMethods() {
+
+        Set<String> probed = new TreeSet<>();
+
+        for (QueryProbe probe : PROBES) {
+            probed.add(probe.repository().getSimpleName() + "." + probe.method());
+        }
+
+        Set<String> missing = new TreeSet<>();
+
+        for (Class<?> repository : REPOSITORIES) {
+
+            for (Method method : declaredQueryMethods(repository)) {
+
+                String name = repository.getSimpleName() + "." + method.getName();
+
+                if (!probed.contains(name)) {
+                    missing.add(name);
+                }
+
+            }
+
+        }
+
+        return List.copyOf(missing);
+    }
+
+    // methods declared by the repository and by its fragments in this project,
+    // not the inherited CRUD methods
+    private static List<Method> declaredQueryMethods(Class<?> repository) {
+
+        List<Method> methods = new ArrayList<>();
+
+        List<Class<?>> types = new ArrayList<>();
+
+        types.add(repository);
+
+        for (Class<?> parent : repository.getInterfaces()) {
+
+            if (parent.getPackageName().equals(repository.getPackageName())) {
+                types.add(parent);
+            }
+
+        }
+
+        for (Class<?> type : types) {
+
+            for (Method method : type.getDeclaredMethods()) {
+
+                if (!method.isDefault() && !Modifier.isStatic(method.getModifiers()) && !method.isSynthetic()) {
+                    methods.add(method);
+                }
+
+            }
+
+        }
+
+        return methods;
+    }
+}
@@ -0,0 +1,30 @@
+package com.banasthali.backend.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// GET /actuator/queryplans returns the last report (running one if there is none),
+// POST /actuator/queryplans re-runs the analysis.
+@Component
+@Endpoint(id = "queryplans")
+@RequiredArgsConstructor
+public class QueryPlanEndpoint {
+
+    private final QueryPlanAdvisor queryPlanAdvisor;
+
+    @ReadOperation
+    public QueryPlanReport report() {
+
+        QueryPlanReport report = queryPlanAdvisor.lastReport();
+
+        return report != null ? report : queryPlanAdvisor.analyze();
+    }
+
+    @WriteOperation
+    public QueryPlanReport analyze() {
+        return queryPlanAdvisor.analyze();
+    }
+}
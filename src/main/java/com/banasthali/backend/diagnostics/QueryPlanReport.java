@@ -0,0 +1,30 @@
+package com.banasthali.backend.diagnostics;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record QueryPlanReport(
+        LocalDateTime generatedAt,
+        int collectionScans,
+        List<Entry> queries,
+        // repository methods with no probe, so their plans are unknown
+        List<String> unprobedMethods
+) {
+
+    public record Entry(
+            String repository,
+            String method,
+            String collection,
+            List<String> stages,
+            List<String> indexes,
+            boolean collectionScan,
+            long keysExamined,
+            long docsExamined,
+            long returned,
+            // docs examined per doc returned; docs examined when nothing matched
+            double examinedRatio,
+            long executionMillis,
+            String error
+    ) {
+    }
+}
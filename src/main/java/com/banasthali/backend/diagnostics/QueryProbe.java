@@ -0,0 +1,33 @@
+package com.banasthali.backend.diagnostics;
+
+import com.mongodb.client.model.Collation;
+import org.bson.Document;
+
+// The Mongo query a repository method sends, with placeholder arguments,
+// in the shape explain() needs.
+public record QueryProbe(
+        Class<?> repository,
+        String method,
+        String collection,
+        Document filter,
+        Document sort,
+        Integer limit,
+        Collation collation
+) {
+
+    public static QueryProbe of(Class<?> repository, String method, String collection, Document filter) {
+        return new QueryProbe(repository, method, collection, filter, null, null, null);
+    }
+
+    public QueryProbe sortedBy(Document sort) {
+        return new QueryProbe(repository, method, collection, filter, sort, limit, collation);
+    }
+
+    public QueryProbe limitedTo(int limit) {
+        return new QueryProbe(repository, method, collection, filter, sort, limit, collation);
+    }
+
+    public QueryProbe collatedBy(Collation collation) {
+        return new QueryProbe(repository, method, collection, filter, sort, limit, collation);
+    }
+}
@@ -0,0 +1,27 @@
+package com.banasthali.backend.dto;
+
+import java.util.List;
+
+// Outcome of POST /api/items/bulk, one entry per item in input order.
+// error is set when reading stopped early (malformed JSON or too many items).
+public record BulkImportResult(
+        int created,
+        int failed,
+        List<ItemResult> results,
+        String error
+) {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        FAILED
+    }
+
+    public record ItemResult(
+            int index,
+            Status status,
+            String id,
+            List<String> errors
+    ) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.banasthali.backend.dto;
+
+// One available bus and how far it is from a stop.
+public record BusEta(
+        String driverId,
+        double etaMinutes,
+        double distanceKm,
+        Double latitude,
+        Double longitude
+) {
+}
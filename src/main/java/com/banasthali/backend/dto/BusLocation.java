@@ -0,0 +1,14 @@
+package com.banasthali.backend.dto;
+
+import java.time.LocalDateTime;
+
+// A bus position as pushed over STOMP; available is false once the
+// driver goes offline, so clients can drop the marker.
+public record BusLocation(
+        String driverId,
+        Double latitude,
+        Double longitude,
+        boolean available,
+        LocalDateTime updatedAt
+) {
+}
@@ -0,0 +1,17 @@
+package com.banasthali.backend.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPage<T> {
+
+    private List<T> items;
+
+    // Opaque; pass back as ?cursor= to get the next page. Null on the last page.
+    private String nextCursor;
+}
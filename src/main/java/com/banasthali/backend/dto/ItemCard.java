@@ -0,0 +1,36 @@
+package com.banasthali.backend.dto;
+
+import com.banasthali.backend.model.Item;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Slim list view of an item. Used as a Mongo DTO projection, so only these
+// fields are read from the items collection; no description or seller contact.
+public record ItemCard(
+        String id,
+        String title,
+        BigDecimal price,
+        String category,
+        String imageUrl,
+        String thumbnailUrl,
+        String sellerHostel,
+        boolean available,
+        LocalDateTime createdAt
+) {
+
+    public static ItemCard fromItem(Item item) {
+
+        return new ItemCard(
+                item.getId(),
+                item.getTitle(),
+                item.getPrice(),
+                item.getCategory(),
+                item.getImageUrl(),
+                item.getThumbnailUrl(),
+                item.getSellerHostel(),
+                item.isAvailable(),
+                item.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,19 @@
+package com.banasthali.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Counts over the available items, for drawing filter chips in one call.
+public record ItemFacets(
+        int total,
+        List<CategoryCount> categories,
+        List<PriceBucket> priceBuckets
+) {
+
+    public record CategoryCount(String category, int count) {
+    }
+
+    // Half-open range [min, max); max is null for the last bucket.
+    public record PriceBucket(BigDecimal min, BigDecimal max, int count) {
+    }
+}
@@ -17,6 +17,8 @@ public class ItemResponse {
     private String description;
     private BigDecimal price;
     private String imageUrl;
+    private String thumbnailUrl;
+    private String mediumUrl;
     private String category;
     private String sellerId;
     private String sellerName;
@@ -25,6 +27,7 @@ public class ItemResponse {
     private String sellerHostel;
     private String sellerRoom;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 
     public static ItemResponse fromItem(Item item) {
 
@@ -40,6 +43,10 @@ public class ItemResponse {
 
                 .imageUrl(item.getImageUrl())
 
+                .thumbnailUrl(item.getThumbnailUrl())
+
+                .mediumUrl(item.getMediumUrl())
+
                 .category(item.getCategory())
 
                 .sellerId(item.getSellerId())
@@ -57,6 +64,8 @@ public class ItemResponse {
 
                 .createdAt(item.getCreatedAt())
 
+                .updatedAt(item.getUpdatedAt())
+
                 .build();
     }
 }
@@ -0,0 +1,13 @@
+package com.banasthali.backend.dto;
+
+// One autocomplete entry: a normalized item title or category.
+public record ItemSuggestion(
+        String text,
+        Kind kind,
+        int listings
+) {
+
+    public enum Kind {
+        TITLE, CATEGORY
+    }
+}
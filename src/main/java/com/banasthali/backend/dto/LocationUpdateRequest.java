@@ -1,11 +1,15 @@
 package com.banasthali.backend.dto;
 
+import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
 @Data
 public class LocationUpdateRequest {
 
+    @NotNull
     private Double latitude;
+
+    @NotNull
     private Double longitude;
 
 }
\ No newline at end of file
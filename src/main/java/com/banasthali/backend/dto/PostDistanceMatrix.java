@@ -0,0 +1,13 @@
+package com.banasthali.backend.dto;
+
+import java.util.List;
+
+// All-pairs distances and bus ETAs between the posts in postIds, row-major:
+// the entry from postIds[i] to postIds[j] is at i * postIds.size() + j.
+// Posts without coordinates are left out.
+public record PostDistanceMatrix(
+        List<String> postIds,
+        double[] distanceMeters,
+        double[] etaMinutes
+) {
+}
@@ -0,0 +1,9 @@
+package com.banasthali.backend.dto;
+
+// Pushed to /topic/user/{userId} when a new listing matches a saved search.
+public record SavedSearchMatch(
+        String savedSearchId,
+        String query,
+        ItemCard item
+) {
+}
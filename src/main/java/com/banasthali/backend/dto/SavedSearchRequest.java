@@ -0,0 +1,24 @@
+package com.banasthali.backend.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SavedSearchRequest {
+
+    @NotBlank(message = "Query is required")
+    @Size(max = 100, message = "Query must be at most 100 characters")
+    private String query;
+
+    private String category;
+
+    @DecimalMin(value = "0", message = "Max price must not be negative")
+    private BigDecimal maxPrice;
+}
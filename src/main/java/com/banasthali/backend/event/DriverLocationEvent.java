@@ -0,0 +1,17 @@
+package com.banasthali.backend.event;
+
+import com.banasthali.backend.service.DriverLocationRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Published by DriverLocationRegistry whenever a driver's position or
+// availability changes, on a ping or when a refresh brings in another
+// node's ping.
+@Getter
+@AllArgsConstructor
+@ToString
+public class DriverLocationEvent {
+
+    private final DriverLocationRegistry.DriverLocation location;
+}
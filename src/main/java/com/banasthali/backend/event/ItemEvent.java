@@ -0,0 +1,22 @@
+package com.banasthali.backend.event;
+
+import com.banasthali.backend.model.Item;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Published by the item write paths after the change has been saved,
+// so in-memory views of the marketplace can follow along.
+@Getter
+@AllArgsConstructor
+@ToString
+public class ItemEvent {
+
+    public enum Type {
+        CREATED, UPDATED, SOLD, DELETED
+    }
+
+    private final Type type;
+
+    private final Item item;
+}
@@ -1,6 +1,8 @@
 package com.banasthali.backend.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.AllArgsConstructor;
@@ -9,6 +11,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Document(collection = "bookings")
+// findByDriverId and findByDriverIdIsNullAndStatus
+@CompoundIndex(name = "driverId_status", def = "{ 'driverId': 1, 'status': 1 }")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,11 +21,13 @@ public class Booking {
     @Id
     private String id;
 
+    @Indexed
     private String passengerId;
     private String driverId;
     private String pickupPostId;
     private String destinationPostId;
 
+    @Indexed
     private BookingStatus status;
 
     public enum BookingStatus {
@@ -2,13 +2,24 @@ package com.banasthali.backend.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Document(collection = "items")
+@CompoundIndexes({
+        // keyset pages of the feed and of a seller's listings
+        @CompoundIndex(name = "available_createdAt_id", def = "{ 'available': 1, 'createdAt': -1, '_id': -1 }"),
+        @CompoundIndex(name = "sellerId_createdAt_id", def = "{ 'sellerId': 1, 'createdAt': -1, '_id': -1 }"),
+        // price-sorted filter without category or hostel
+        @CompoundIndex(name = "available_price_id", def = "{ 'available': 1, 'price': 1, '_id': 1 }")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -26,10 +37,17 @@ public class Item {
     @TextIndexed
     private String description;
 
+    // stored as a number so price ranges and sorts compare numerically
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal price;
 
     private String imageUrl;
 
+    // resized variants of imageUrl, set in the background after upload
+    private String thumbnailUrl;
+
+    private String mediumUrl;
+
     private String category;
 
     private String sellerId;
@@ -45,4 +63,7 @@ public class Item {
     private boolean available = true;
 
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    // last write; null on items stored before it was tracked
+    private LocalDateTime updatedAt;
 }
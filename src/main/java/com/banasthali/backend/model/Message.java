@@ -2,12 +2,15 @@ package com.banasthali.backend.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "messages")
+// findByBookingIdOrderByTimestampAsc
+@CompoundIndex(name = "bookingId_timestamp", def = "{ 'bookingId': 1, 'timestamp': 1 }")
 
 public class Message {
 
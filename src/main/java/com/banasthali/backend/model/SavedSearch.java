@@ -0,0 +1,40 @@
+package com.banasthali.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// A query a user wants to hear about: every word of it must appear in a new
+// listing, optionally in one category and up to a price.
+@Document(collection = "saved_searches")
+// findByUserIdOrderByCreatedAtDesc and countByUserId
+@CompoundIndex(name = "userId_createdAt", def = "{ 'userId': 1, 'createdAt': -1 }")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SavedSearch {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String query;
+
+    private String category;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal maxPrice;
+
+    private LocalDateTime createdAt;
+}
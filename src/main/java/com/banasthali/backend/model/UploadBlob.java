@@ -0,0 +1,41 @@
+package com.banasthali.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// One stored upload, named by the SHA-256 of its content, and how many
+// items point at it. The file is deleted when the count drops to zero.
+@Document(collection = "upload_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadBlob {
+
+    // file name: <sha256>.<ext>
+    @Id
+    private String id;
+
+    private long size;
+
+    private String contentType;
+
+    private long refCount;
+
+    private LocalDateTime createdAt;
+
+    // the orphan sweep leaves blobs acquired after it started alone
+    private LocalDateTime lastAcquiredAt;
+
+    // set by whoever deletes the file; uploads of the name wait until the
+    // blob is gone
+    private boolean deleting;
+
+    private LocalDateTime deletingAt;
+}
@@ -2,6 +2,7 @@ package com.banasthali.backend.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
@@ -13,6 +14,8 @@ import java.util.Collection;
 import java.util.List;
 
 @Document(collection = "users")
+// findByRoleAndDriverAvailable*, countByRole
+@CompoundIndex(name = "role_driverAvailable", def = "{ 'role': 1, 'driverAvailable': 1 }")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,6 +46,7 @@ public class User implements UserDetails {
     private Double longitude;
     private LocalDateTime lastLocationUpdate;
     //forgot password token and expiry
+    @Indexed(sparse = true)
     private String resetToken;
     private LocalDateTime resetTokenExpiry;
     // UserDetails implementation (keep explicit to control behavior)
@@ -0,0 +1,54 @@
+package com.banasthali.backend.repository;
+
+import com.banasthali.backend.model.Item;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+// Position in a (createdAt desc, id desc) listing, encoded as an opaque token.
+public record ItemCursor(LocalDateTime createdAt, String id) {
+
+    public static ItemCursor after(Item item) {
+        return new ItemCursor(item.getCreatedAt(), item.getId());
+    }
+
+    public String encode() {
+
+        long millis = createdAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((millis + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ItemCursor decode(String token) {
+
+        try {
+
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+
+            int separator = raw.indexOf(':');
+
+            LocalDateTime createdAt = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator))),
+                    ZoneOffset.UTC
+            );
+
+            String id = raw.substring(separator + 1);
+
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+
+            return new ItemCursor(createdAt, id);
+
+        } catch (RuntimeException e) {
+
+            throw new IllegalArgumentException("Invalid cursor");
+
+        }
+    }
+}
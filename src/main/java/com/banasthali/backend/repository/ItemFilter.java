@@ -0,0 +1,57 @@
+package com.banasthali.backend.repository;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+// Combined marketplace filter; null fields are not filtered on.
+// Category and hostel match case-insensitively.
+public record ItemFilter(
+        String category,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        String sellerHostel,
+        boolean available,
+        Sort sort
+) {
+
+    public ItemFilter {
+
+        category = blankToNull(category);
+
+        sellerHostel = blankToNull(sellerHostel);
+
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+
+        if (sort == null) {
+            sort = Sort.NEWEST;
+        }
+    }
+
+    public enum Sort {
+
+        NEWEST,
+        PRICE_ASC,
+        PRICE_DESC;
+
+        public static Sort parse(String value) {
+
+            try {
+
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+
+            } catch (IllegalArgumentException e) {
+
+                throw new IllegalArgumentException(
+                        "sort must be one of newest, price_asc, price_desc"
+                );
+
+            }
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -6,9 +6,16 @@ import org.springframework.data.mongodb.repository.Query;
 
 import java.util.List;
 
-public interface ItemRepository extends MongoRepository<Item, String> {
+public interface ItemRepository extends MongoRepository<Item, String>, ItemRepositoryCustom {
+
+    String CATEGORY_AVAILABLE = "{ 'category': ?0, 'available': true }";
+
+    String CASE_INSENSITIVE = "{ 'locale': 'en', 'strength': 2 }";
     
     List<Item> findByAvailableTrueOrderByCreatedAtDesc();
+
+    // dynamic projection, e.g. ItemCard.class to read only the card fields
+    <T> List<T> findByAvailableTrueOrderByCreatedAtDesc(Class<T> type);
     
     List<Item> findBySellerIdOrderByCreatedAtDesc(String sellerId);
     
@@ -19,5 +26,12 @@ public interface ItemRepository extends MongoRepository<Item, String> {
            "], 'available': true }")
     List<Item> searchItems(String query);
     
+    // Case-insensitive through a strength-2 collation that matches the
+    // category_available_ci index; the derived IgnoreCase form compiled to a
+    // regex and scanned the collection.
+    @Query(value = CATEGORY_AVAILABLE, collation = CASE_INSENSITIVE)
     List<Item> findByCategoryIgnoreCaseAndAvailableTrue(String category);
+
+    @Query(value = CATEGORY_AVAILABLE, collation = CASE_INSENSITIVE)
+    <T> List<T> findByCategoryIgnoreCaseAndAvailableTrue(String category, Class<T> type);
 }
@@ -0,0 +1,34 @@
+package com.banasthali.backend.repository;
+
+import com.banasthali.backend.model.Item;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemRepositoryCustom {
+
+    // Available items, newest first, strictly after the cursor (null for the first page).
+    // type is Item or a projection such as ItemCard, which limits the fields read.
+    <T> List<T> findAvailablePage(ItemCursor after, int limit, Class<T> type);
+
+    // One seller's items, newest first, strictly after the cursor (null for the first page).
+    List<Item> findSellerPage(String sellerId, ItemCursor after, int limit);
+
+    // Items matching every set field of the filter in its sort order,
+    // at most limit of them when limit is not null.
+    <T> List<T> findFiltered(ItemFilter filter, Integer limit, Class<T> type);
+
+    // Sets only the image variant URLs (and updatedAt) and returns the item as
+    // stored afterwards; empty if it no longer exists.
+    Optional<Item> setImageVariants(String id, String thumbnailUrl, String mediumUrl);
+
+    // Sets only the given non-null listing fields (and updatedAt) and returns
+    // the item as stored afterwards; empty if it no longer exists. Unlike
+    // save(), this does not write back fields another writer set since the
+    // item was read, such as the image variants.
+    Optional<Item> updateListing(String id, String title, String description, BigDecimal price, String category);
+
+    // Sets available to false (and updatedAt), the same way as updateListing.
+    Optional<Item> markSold(String id);
+}
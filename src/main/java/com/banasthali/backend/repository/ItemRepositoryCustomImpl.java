@@ -0,0 +1,177 @@
+package com.banasthali.backend.repository;
+
+import com.banasthali.backend.model.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Keyset pagination: each page seeks straight to (createdAt, _id) on the
+// matching compound index instead of skipping over the earlier pages.
+//
+// findFiltered builds one query from whichever filter fields are set; the
+// indexes it relies on are listed in MongoIndexConfig.
+@RequiredArgsConstructor
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+
+    private static final Sort NEWEST_FIRST =
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private static final Sort CHEAPEST_FIRST =
+            Sort.by(Sort.Direction.ASC, "price").and(Sort.by(Sort.Direction.ASC, "id"));
+
+    private static final Sort PRICIEST_FIRST =
+            Sort.by(Sort.Direction.DESC, "price").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    // same collation as the filter indexes, so category and hostel can use them
+    private static final Collation CASE_INSENSITIVE = Collation.of("en").strength(2);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public <T> List<T> findAvailablePage(ItemCursor after, int limit, Class<T> type) {
+
+        return mongoTemplate.query(Item.class)
+                .as(type)
+                .matching(page(Criteria.where("available").is(true), after, limit))
+                .all();
+    }
+
+    @Override
+    public List<Item> findSellerPage(String sellerId, ItemCursor after, int limit) {
+
+        return mongoTemplate.find(
+                page(Criteria.where("sellerId").is(sellerId), after, limit),
+                Item.class
+        );
+    }
+
+    @Override
+    public <T> List<T> findFiltered(ItemFilter filter, Integer limit, Class<T> type) {
+
+        Criteria criteria = Criteria.where("available").is(filter.available());
+
+        if (filter.category() != null) {
+            criteria.and("category").is(filter.category());
+        }
+
+        if (filter.sellerHostel() != null) {
+            criteria.and("sellerHostel").is(filter.sellerHostel());
+        }
+
+        if (filter.minPrice() != null || filter.maxPrice() != null) {
+
+            Criteria price = criteria.and("price");
+
+            if (filter.minPrice() != null) {
+                price.gte(filter.minPrice());
+            }
+
+            if (filter.maxPrice() != null) {
+                price.lte(filter.maxPrice());
+            }
+
+        }
+
+        Query query = new Query(criteria)
+                .with(switch (filter.sort()) {
+                    case NEWEST -> NEWEST_FIRST;
+                    case PRICE_ASC -> CHEAPEST_FIRST;
+                    case PRICE_DESC -> PRICIEST_FIRST;
+                })
+                .collation(CASE_INSENSITIVE);
+
+        if (limit != null) {
+            query.limit(limit);
+        }
+
+        return mongoTemplate.query(Item.class)
+                .as(type)
+                .matching(query)
+                .all();
+    }
+
+    @Override
+    public Optional<Item> setImageVariants(String id, String thumbnailUrl, String mediumUrl) {
+
+        return modify(id, new Update()
+                .set("thumbnailUrl", thumbnailUrl)
+                .set("mediumUrl", mediumUrl)
+                .set("updatedAt", LocalDateTime.now()));
+    }
+
+    @Override
+    public Optional<Item> updateListing(String id, String title, String description, BigDecimal price, String category) {
+
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+
+        if (title != null) {
+            update.set("title", title);
+        }
+
+        if (description != null) {
+            update.set("description", description);
+        }
+
+        if (price != null) {
+            update.set("price", price);
+        }
+
+        if (category != null) {
+            update.set("category", category);
+        }
+
+        return modify(id, update);
+    }
+
+    @Override
+    public Optional<Item> markSold(String id) {
+
+        return modify(id, new Update()
+                .set("available", false)
+                .set("updatedAt", LocalDateTime.now()));
+    }
+
+    private Optional<Item> modify(String id, Update update) {
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(id)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Item.class
+        ));
+    }
+
+    private static Query page(Criteria filter, ItemCursor after, int limit) {
+
+        Criteria criteria = filter;
+
+        if (after != null) {
+
+            criteria = new Criteria().andOperator(
+                    filter,
+                    new Criteria().orOperator(
+                            Criteria.where("createdAt").lt(after.createdAt()),
+                            new Criteria().andOperator(
+                                    Criteria.where("createdAt").is(after.createdAt()),
+                                    Criteria.where("id").lt(after.id())
+                            )
+                    )
+            );
+
+        }
+
+        return new Query(criteria)
+                .with(NEWEST_FIRST)
+                .limit(limit);
+    }
+}
@@ -0,0 +1,13 @@
+package com.banasthali.backend.repository;
+
+import com.banasthali.backend.model.SavedSearch;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface SavedSearchRepository extends MongoRepository<SavedSearch, String> {
+
+    List<SavedSearch> findByUserIdOrderByCreatedAtDesc(String userId);
+
+    long countByUserId(String userId);
+}
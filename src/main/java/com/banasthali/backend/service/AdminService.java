@@ -1,21 +1,55 @@
 package com.banasthali.backend.service;
 
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Booking;
 import com.banasthali.backend.model.Item;
 import com.banasthali.backend.model.Role;
 import com.banasthali.backend.model.User;
 import com.banasthali.backend.repository.ItemRepository;
 import com.banasthali.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class AdminService {
 
+    // export name -> (document type, fields never exported)
+    private static final Map<String, ExportSource> EXPORTS = Map.of(
+            "users", new ExportSource(User.class, List.of("password", "resetToken", "resetTokenExpiry")),
+            "items", new ExportSource(Item.class, List.of()),
+            "bookings", new ExportSource(Booking.class, List.of())
+    );
+
+    // relaxed extended JSON, the format mongoexport writes and mongoimport reads
+    private static final JsonWriterSettings EXPORT_JSON = JsonWriterSettings.builder()
+            .outputMode(JsonMode.RELAXED)
+            .build();
+
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MongoTemplate mongoTemplate;
 
     // users
     public List<User> getAllUsers(){
@@ -32,7 +66,51 @@ public class AdminService {
     }
 
     public void deleteItem(String id){
-        itemRepository.deleteById(id);
+        itemRepository.findById(id).ifPresent(item -> {
+            itemRepository.delete(item);
+            eventPublisher.publishEvent(new ItemEvent(ItemEvent.Type.DELETED, item));
+        });
+    }
+
+    // export
+    public static boolean isExportable(String name){
+        return EXPORTS.containsKey(name);
+    }
+
+    // Writes the collection as NDJSON while reading it from a cursor, one
+    // batch in memory at a time whatever the collection size.
+    public void export(String name, OutputStream out) throws IOException {
+
+        ExportSource source = EXPORTS.get(name);
+
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown export: " + name);
+        }
+
+        Query query = new Query()
+                .with(Sort.by("_id"))
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+
+        source.excluded().forEach(field -> query.fields().exclude(field));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        try (Stream<Document> documents = mongoTemplate.stream(
+                query, Document.class, mongoTemplate.getCollectionName(source.type()))) {
+
+            Iterator<Document> iterator = documents.iterator();
+
+            while (iterator.hasNext()) {
+
+                writer.write(iterator.next().toJson(EXPORT_JSON));
+
+                writer.write('\n');
+
+            }
+
+        }
+
+        writer.flush();
     }
 
     // stats
@@ -46,4 +124,7 @@ public class AdminService {
 
     public long totalDrivers(){return userRepository.countByRole(Role.DRIVER);}
 
-}
\ No newline at end of file
+    private record ExportSource(Class<?> type, List<String> excluded) {
+    }
+
+}
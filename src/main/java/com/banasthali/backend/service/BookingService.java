@@ -1,7 +1,6 @@
 package com.banasthali.backend.service;
 
 import com.banasthali.backend.model.Booking;
-import com.banasthali.backend.model.Post;
 import com.banasthali.backend.model.User;
 import com.banasthali.backend.repository.BookingRepository;
 import com.banasthali.backend.repository.PostRepository;
@@ -41,25 +40,6 @@ public class BookingService {
     }
 
 
-    private double distanceBetweenPosts(Post a, Post b) {
-        if (a == null || b == null || a.getLatitude() == null || b.getLatitude() == null) return Double.MAX_VALUE;
-        double lat1 = a.getLatitude();
-        double lon1 = a.getLongitude();
-        double lat2 = b.getLatitude();
-        double lon2 = b.getLongitude();
-        double R = 6371e3;
-        double phi1 = Math.toRadians(lat1);
-        double phi2 = Math.toRadians(lat2);
-        double deltaPhi = Math.toRadians(lat2 - lat1);
-        double deltaLambda = Math.toRadians(lon2 - lon1);
-        double sinDeltaPhi = Math.sin(deltaPhi / 2);
-        double sinDeltaLambda = Math.sin(deltaLambda / 2);
-        double aVal = sinDeltaPhi * sinDeltaPhi + Math.cos(phi1) * Math.cos(phi2) * sinDeltaLambda * sinDeltaLambda;
-        double c = 2 * Math.atan2(Math.sqrt(aVal), Math.sqrt(1 - aVal));
-        return R * c;
-    }
-
-
     public Booking updateStatus(
 
             String bookingId,
@@ -113,42 +93,4 @@ public class BookingService {
 
     }
 
-
-    private double calculateETA(
-
-            double busLat,
-            double busLng,
-            double stopLat,
-            double stopLng
-    ){
-
-        double R = 6371;
-
-        double dLat = Math.toRadians(stopLat - busLat);
-        double dLon = Math.toRadians(stopLng - busLng);
-
-        double a =
-                Math.sin(dLat/2) * Math.sin(dLat/2)
-                        +
-                        Math.cos(Math.toRadians(busLat))
-                                *
-                                Math.cos(Math.toRadians(stopLat))
-                                *
-                                Math.sin(dLon/2)
-                                *
-                                Math.sin(dLon/2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-
-        double distance = R * c;
-
-
-        double avgBusSpeed = 25.0;
-
-
-        double timeHours = distance / avgBusSpeed;
-
-
-        return timeHours * 60;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.BusLocation;
+import com.banasthali.backend.event.DriverLocationEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Pushes bus positions over STOMP so the map no longer polls:
+//   /topic/bus/{driverId}  one bus, at most one message per min-interval
+//   /topic/bus/fleet       every bus that changed, batched per fleet-interval
+//
+// A ping inside a driver's interval is held back and the newest one goes
+// out when the interval ends, so the last position is never lost. The
+// broker fans each message out in memory, so the cost of a ping no longer
+// depends on how many students are watching.
+//
+// A new subscriber gets the current state straight away (just that
+// subscriber, on its own subscription) instead of waiting for the next ping.
+//
+// Off-duty drivers are not tracked: going offline sends one update with
+// available=false and no position, and later pings are dropped until the
+// driver is available again.
+@Service
+public class BusLocationBroadcaster {
+
+    static final String BUS_TOPIC_PREFIX = "/topic/bus/";
+
+    static final String FLEET_TOPIC = BUS_TOPIC_PREFIX + "fleet";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final DriverLocationRegistry driverLocationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    // writes to the client channel directly, bypassing the broker
+    private final SimpMessagingTemplate snapshotTemplate;
+
+    private final long minIntervalNanos;
+
+    private final ConcurrentMap<String, Long> lastSent = new ConcurrentHashMap<>();
+
+    // newest position per driver not sent on its topic yet
+    private final ConcurrentMap<String, BusLocation> held = new ConcurrentHashMap<>();
+
+    // drivers changed since the last fleet message
+    private final ConcurrentMap<String, BusLocation> fleetChanges = new ConcurrentHashMap<>();
+
+    // drivers whose offline update has gone out
+    private final Set<String> offline = ConcurrentHashMap.newKeySet();
+
+    public BusLocationBroadcaster(
+            SimpMessagingTemplate messagingTemplate,
+            @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            DriverLocationRegistry driverLocationRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${drivers.broadcast.min-interval:PT1S}") Duration minInterval
+    ) {
+
+        this.messagingTemplate = messagingTemplate;
+        this.driverLocationRegistry = driverLocationRegistry;
+        this.meterRegistry = meterRegistry;
+        this.minIntervalNanos = minInterval.toNanos();
+
+        this.snapshotTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        this.snapshotTemplate.setMessageConverter(messagingTemplate.getMessageConverter());
+    }
+
+    @EventListener
+    public void onLocation(DriverLocationEvent event) {
+
+        DriverLocationRegistry.DriverLocation driver = event.getLocation();
+
+        BusLocation location;
+
+        if (!driver.available()) {
+
+            if (!offline.add(driver.driverId())) {
+                return;
+            }
+
+            // replaces any position still held back
+            location = new BusLocation(driver.driverId(), null, null, false, driver.updatedAt());
+
+        } else if (driver.hasPosition()) {
+
+            offline.remove(driver.driverId());
+
+            location = toBusLocation(driver);
+
+        } else {
+
+            // online but no ping yet
+            return;
+
+        }
+
+        fleetChanges.put(location.driverId(), location);
+
+        held.put(location.driverId(), location);
+
+        sendIfDue(location.driverId());
+    }
+
+    // sends held positions whose interval has ended
+    @Scheduled(fixedDelayString = "${drivers.broadcast.min-interval:PT1S}")
+    public void releaseHeld() {
+
+        for (String driverId : held.keySet()) {
+            sendIfDue(driverId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${drivers.broadcast.fleet-interval:PT2S}")
+    public void publishFleet() {
+
+        if (fleetChanges.isEmpty()) {
+            return;
+        }
+
+        List<BusLocation> changes = new ArrayList<>();
+
+        for (String driverId : fleetChanges.keySet()) {
+
+            BusLocation location = fleetChanges.remove(driverId);
+
+            if (location != null) {
+                changes.add(location);
+            }
+
+        }
+
+        messagingTemplate.convertAndSend(FLEET_TOPIC, changes);
+
+        meterRegistry.counter("drivers.broadcast.messages", "topic", "fleet").increment();
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+
+        String destination = headers.getDestination();
+
+        if (destination == null || !destination.startsWith(BUS_TOPIC_PREFIX)) {
+            return;
+        }
+
+        Object snapshot;
+
+        if (FLEET_TOPIC.equals(destination)) {
+
+            snapshot = driverLocationRegistry.all().stream()
+                    .filter(location -> location.available() && location.hasPosition())
+                    .map(BusLocationBroadcaster::toBusLocation)
+                    .toList();
+
+        } else {
+
+            String driverId = destination.substring(BUS_TOPIC_PREFIX.length());
+
+            if (driverId.isEmpty() || driverId.contains("/")) {
+                return;
+            }
+
+            snapshot = driverLocationRegistry.get(driverId)
+                    .filter(location -> location.available() && location.hasPosition())
+                    .map(BusLocationBroadcaster::toBusLocation)
+                    .orElse(null);
+
+            if (snapshot == null) {
+                return;
+            }
+
+        }
+
+        // the same headers an @SubscribeMapping reply gets
+        SimpMessageHeaderAccessor reply = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        reply.setSessionId(headers.getSessionId());
+        reply.setSubscriptionId(headers.getSubscriptionId());
+        reply.setLeaveMutable(true);
+
+        snapshotTemplate.convertAndSend(destination, snapshot, reply.getMessageHeaders());
+
+        meterRegistry.counter("drivers.broadcast.messages", "topic", "snapshot").increment();
+    }
+
+    private void sendIfDue(String driverId) {
+
+        long now = System.nanoTime();
+
+        boolean[] due = {false};
+
+        lastSent.compute(driverId, (id, last) -> {
+
+            if (last != null && now - last < minIntervalNanos) {
+                return last;
+            }
+
+            due[0] = true;
+
+            return now;
+
+        });
+
+        if (!due[0]) {
+            return;
+        }
+
+        // whatever is newest by now; a ping that lands after this waits for releaseHeld
+        BusLocation location = held.remove(driverId);
+
+        if (location == null) {
+            return;
+        }
+
+        messagingTemplate.convertAndSend(BUS_TOPIC_PREFIX + driverId, location);
+
+        meterRegistry.counter("drivers.broadcast.messages", "topic", "driver").increment();
+    }
+
+    private static BusLocation toBusLocation(DriverLocationRegistry.DriverLocation location) {
+
+        return new BusLocation(
+                location.driverId(),
+                location.latitude(),
+                location.longitude(),
+                location.available(),
+                location.updatedAt()
+        );
+    }
+}
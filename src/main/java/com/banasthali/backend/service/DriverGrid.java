@@ -0,0 +1,127 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.util.GeoDistance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Uniform grid over driver positions: square cells of cellDegrees in
+// latitude and longitude, each holding the ids of the drivers inside it.
+// Kept up to date by DriverLocationRegistry as positions change.
+//
+// Queries walk rings of cells outwards from the query point, so a
+// nearest-k or radius search only looks at drivers nearby.
+@Component
+public class DriverGrid {
+
+    private final double cellDegrees;
+
+    private final ConcurrentMap<Long, Set<String>> cells = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> cellOf = new ConcurrentHashMap<>();
+
+    public DriverGrid(@Value("${drivers.grid.cell-size-meters:500}") double cellSizeMeters) {
+        this.cellDegrees = cellSizeMeters / GeoDistance.METERS_PER_DEGREE;
+    }
+
+    public void move(String driverId, double latitude, double longitude) {
+
+        long cell = cell(row(latitude), column(longitude));
+
+        Long previous = cellOf.put(driverId, cell);
+
+        if (previous != null && previous == cell) {
+            return;
+        }
+
+        // inside compute, so it cannot race with removeFromCell dropping an emptied cell
+        cells.compute(cell, (key, ids) -> {
+            Set<String> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            updated.add(driverId);
+            return updated;
+        });
+
+        if (previous != null) {
+            removeFromCell(previous, driverId);
+        }
+    }
+
+    public void remove(String driverId) {
+
+        Long previous = cellOf.remove(driverId);
+
+        if (previous != null) {
+            removeFromCell(previous, driverId);
+        }
+    }
+
+    public int size() {
+        return cellOf.size();
+    }
+
+    // ids in the cells exactly ring cells away from the point's cell (ring 0 is the cell itself)
+    public List<String> ring(double latitude, double longitude, int ring) {
+
+        int row = row(latitude);
+        int column = column(longitude);
+
+        List<String> ids = new ArrayList<>();
+
+        for (int dr = -ring; dr <= ring; dr++) {
+
+            boolean edgeRow = Math.abs(dr) == ring;
+
+            // inner rows only contribute their first and last cell
+            int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+
+            for (int dc = -ring; dc <= ring; dc += step) {
+
+                Set<String> cell = cells.get(cell(row + dr, column + dc));
+
+                if (cell != null) {
+                    ids.addAll(cell);
+                }
+
+            }
+
+        }
+
+        return ids;
+    }
+
+    // A lower bound on the distance from the point to any driver outside
+    // rings 0..ring, so a search can stop once its k-th result is closer.
+    // Longitude degrees shrink towards the poles, so the highest latitude
+    // the block reaches is used.
+    public double clearanceMeters(double latitude, int ring) {
+
+        double highestLatitude = Math.min(89.0, Math.abs(latitude) + (ring + 1) * cellDegrees);
+
+        return ring * cellDegrees * GeoDistance.METERS_PER_DEGREE * Math.cos(Math.toRadians(highestLatitude));
+    }
+
+    private void removeFromCell(long cell, String driverId) {
+
+        cells.computeIfPresent(cell, (key, ids) -> {
+            ids.remove(driverId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long cell(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
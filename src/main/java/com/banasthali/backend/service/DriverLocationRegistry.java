@@ -0,0 +1,438 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.event.DriverLocationEvent;
+import com.banasthali.backend.model.Role;
+import com.banasthali.backend.model.User;
+import com.banasthali.backend.util.GeoDistance;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Latest position and availability of every driver, kept in memory so GPS
+// pings and location reads never touch Mongo.
+//
+// Pings are written behind: only the newest ping per driver is kept until
+// the next flush, which sends one unordered bulk of $set updates on the
+// location fields. A periodic refresh picks up what other nodes flushed and
+// availability changes made directly in Mongo.
+//
+// Positions are also indexed in a DriverGrid for nearest-driver queries,
+// and every change is published as a DriverLocationEvent.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DriverLocationRegistry {
+
+    // rings walked before a nearest query falls back to scanning every driver
+    private static final int MAX_RINGS = 20;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final DriverGrid driverGrid;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${mongo.preload.driver-locations:true}")
+    private boolean preload;
+
+    private final ConcurrentMap<String, DriverLocation> drivers = new ConcurrentHashMap<>();
+
+    // newest unflushed ping per driver
+    private final ConcurrentMap<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    public record DriverLocation(
+            String driverId,
+            Double latitude,
+            Double longitude,
+            LocalDateTime updatedAt,
+            boolean available
+    ) {
+
+        public boolean hasPosition() {
+            return latitude != null && longitude != null;
+        }
+
+        DriverLocation withAvailable(boolean available) {
+            return new DriverLocation(driverId, latitude, longitude, updatedAt, available);
+        }
+    }
+
+    public record NearbyDriver(
+            DriverLocation location,
+            double distanceMeters
+    ) {
+    }
+
+    private record PendingWrite(
+            double latitude,
+            double longitude,
+            LocalDateTime at,
+            boolean markAvailable
+    ) {
+
+        // a newer ping keeps an older one's request to mark the driver available
+        PendingWrite after(PendingWrite older) {
+            return new PendingWrite(latitude, longitude, at, markAvailable || older.markAvailable);
+        }
+    }
+
+    public DriverLocation update(
+            String driverId,
+            double latitude,
+            double longitude,
+            boolean markAvailable
+    ) {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        PendingWrite write = new PendingWrite(latitude, longitude, now, markAvailable);
+
+        pending.merge(driverId, write, (older, newer) -> newer.after(older));
+
+        meterRegistry.counter("drivers.location.pings").increment();
+
+        DriverLocation location = drivers.compute(driverId, (id, previous) -> indexed(new DriverLocation(
+                id,
+                latitude,
+                longitude,
+                now,
+                markAvailable || (previous != null && previous.available())
+        )));
+
+        eventPublisher.publishEvent(new DriverLocationEvent(location));
+
+        return location;
+    }
+
+    // after availability was saved to Mongo
+    public void setAvailable(String driverId, boolean available) {
+
+        DriverLocation location = drivers.compute(driverId, (id, previous) -> previous == null
+                ? new DriverLocation(id, null, null, null, available)
+                : previous.withAvailable(available));
+
+        eventPublisher.publishEvent(new DriverLocationEvent(location));
+    }
+
+    // falls back to Mongo for drivers registered since the last refresh
+    public Optional<DriverLocation> get(String driverId) {
+
+        DriverLocation location = drivers.get(driverId);
+
+        if (location != null) {
+            return Optional.of(location);
+        }
+
+        User user = mongoTemplate.findOne(driverQuery(driverId), User.class);
+
+        if (user == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(drivers.computeIfAbsent(driverId, id -> indexed(fromUser(user))));
+    }
+
+    public List<DriverLocation> all() {
+        return new ArrayList<>(drivers.values());
+    }
+
+    // Available drivers nearest to the point, closest first, optionally at
+    // most limit of them and within radiusMeters. Walks the grid outwards
+    // and stops as soon as no unvisited cell can hold a closer driver.
+    public List<NearbyDriver> nearestAvailable(
+            double latitude,
+            double longitude,
+            Integer limit,
+            Double radiusMeters
+    ) {
+
+        Map<String, NearbyDriver> found = new HashMap<>();
+
+        int indexed = driverGrid.size();
+
+        int examined = 0;
+
+        boolean complete = false;
+
+        for (int ring = 0; ring <= MAX_RINGS && !complete; ring++) {
+
+            for (String driverId : driverGrid.ring(latitude, longitude, ring)) {
+
+                examined++;
+
+                consider(drivers.get(driverId), latitude, longitude, radiusMeters, found);
+
+            }
+
+            double clearance = driverGrid.clearanceMeters(latitude, ring);
+
+            complete = examined >= indexed
+                    || (radiusMeters != null && clearance >= radiusMeters)
+                    || (limit != null && kthDistance(found, limit) <= clearance);
+
+        }
+
+        if (!complete) {
+
+            // drivers far away on a sparse grid: a plain scan beats walking empty rings
+            for (DriverLocation location : drivers.values()) {
+                consider(location, latitude, longitude, radiusMeters, found);
+            }
+
+        }
+
+        List<NearbyDriver> nearest = new ArrayList<>(found.values());
+
+        nearest.sort(Comparator.comparingDouble(NearbyDriver::distanceMeters));
+
+        return limit != null && nearest.size() > limit ? nearest.subList(0, limit) : nearest;
+    }
+
+    private static void consider(
+            DriverLocation location,
+            double latitude,
+            double longitude,
+            Double radiusMeters,
+            Map<String, NearbyDriver> found
+    ) {
+
+        if (location == null || !location.available() || !location.hasPosition()) {
+            return;
+        }
+
+        double distance = GeoDistance.meters(latitude, longitude, location.latitude(), location.longitude());
+
+        if (radiusMeters == null || distance <= radiusMeters) {
+            found.put(location.driverId(), new NearbyDriver(location, distance));
+        }
+    }
+
+    // distance of the limit-th closest driver found so far, or infinity
+    private static double kthDistance(Map<String, NearbyDriver> found, int limit) {
+
+        if (found.size() < limit) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return found.values().stream()
+                .mapToDouble(NearbyDriver::distanceMeters)
+                .sorted()
+                .skip(limit - 1)
+                .findFirst()
+                .orElse(Double.POSITIVE_INFINITY);
+    }
+
+    // keeps the grid in step; called inside the compute of the driver's entry
+    private DriverLocation indexed(DriverLocation location) {
+
+        if (location.hasPosition()) {
+            driverGrid.move(location.driverId(), location.latitude(), location.longitude());
+        } else {
+            driverGrid.remove(location.driverId());
+        }
+
+        return location;
+    }
+
+    @Scheduled(fixedDelayString = "${drivers.location.flush-interval:PT2S}")
+    public void flush() {
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, PendingWrite> batch = new HashMap<>();
+
+        for (String driverId : pending.keySet()) {
+
+            PendingWrite write = pending.remove(driverId);
+
+            if (write != null) {
+                batch.put(driverId, write);
+            }
+
+        }
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+
+        batch.forEach((driverId, write) -> {
+
+            Update update = new Update()
+                    .set("latitude", write.latitude())
+                    .set("longitude", write.longitude())
+                    .set("lastLocationUpdate", write.at());
+
+            if (write.markAvailable()) {
+                update.set("driverAvailable", true);
+            }
+
+            operations.updateOne(Query.query(Criteria.where("id").is(driverId)), update);
+
+        });
+
+        try {
+
+            operations.execute();
+
+            meterRegistry.counter("drivers.location.writes").increment(batch.size());
+
+        } catch (Exception e) {
+
+            log.warn("Could not flush {} driver locations, retrying on the next flush", batch.size(), e);
+
+            // a ping that arrived meanwhile is newer and wins
+            batch.forEach((driverId, write) ->
+                    pending.merge(driverId, write, (newer, failed) -> newer.after(failed)));
+
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+
+        if (!preload) {
+            return;
+        }
+
+        refresh();
+    }
+
+    @Scheduled(
+            initialDelayString = "${drivers.location.refresh-interval:PT30S}",
+            fixedDelayString = "${drivers.location.refresh-interval:PT30S}"
+    )
+    public void refresh() {
+
+        List<User> stored;
+
+        try {
+
+            stored = mongoTemplate.find(driverQuery(null), User.class);
+
+        } catch (Exception e) {
+
+            log.warn("Could not load driver locations", e);
+
+            return;
+
+        }
+
+        Set<String> seen = new HashSet<>();
+
+        List<DriverLocation> changed = new ArrayList<>();
+
+        for (User user : stored) {
+
+            seen.add(user.getId());
+
+            drivers.compute(user.getId(), (id, local) -> {
+
+                DriverLocation merged = merge(local, fromUser(user));
+
+                if (!merged.equals(local)) {
+                    changed.add(merged);
+                }
+
+                return indexed(merged);
+
+            });
+
+        }
+
+        // deleted drivers
+        for (String driverId : drivers.keySet()) {
+
+            if (!seen.contains(driverId) && !pending.containsKey(driverId)) {
+
+                DriverLocation removed = drivers.remove(driverId);
+
+                driverGrid.remove(driverId);
+
+                if (removed != null) {
+                    changed.add(removed.withAvailable(false));
+                }
+
+            }
+
+        }
+
+        changed.forEach(location -> eventPublisher.publishEvent(new DriverLocationEvent(location)));
+    }
+
+    // Mongo has the newer ping if another node flushed it; availability is
+    // written to Mongo directly, so it wins unless a ping is still pending here
+    private DriverLocation merge(DriverLocation local, DriverLocation stored) {
+
+        if (local == null) {
+            return stored;
+        }
+
+        if (pending.containsKey(local.driverId())) {
+            return local;
+        }
+
+        boolean storedIsNewer = stored.updatedAt() != null
+                && (local.updatedAt() == null || stored.updatedAt().isAfter(local.updatedAt()));
+
+        return (storedIsNewer ? stored : local).withAvailable(stored.available());
+    }
+
+    // one driver, or all of them when driverId is null
+    private static Query driverQuery(String driverId) {
+
+        Criteria criteria = Criteria.where("role").is(Role.DRIVER);
+
+        if (driverId != null) {
+            criteria.and("id").is(driverId);
+        }
+
+        Query query = Query.query(criteria);
+
+        query.fields()
+                .include("latitude")
+                .include("longitude")
+                .include("lastLocationUpdate")
+                .include("driverAvailable");
+
+        return query;
+    }
+
+    private static DriverLocation fromUser(User user) {
+
+        return new DriverLocation(
+                user.getId(),
+                user.getLatitude(),
+                user.getLongitude(),
+                user.getLastLocationUpdate(),
+                Boolean.TRUE.equals(user.getDriverAvailable())
+        );
+    }
+}
@@ -1,32 +1,459 @@
 package com.banasthali.backend.service;
 
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.UploadBlob;
+import com.banasthali.backend.service.storage.UploadStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
 
+// Streams uploads to a temp file through a fixed buffer, so heap use per upload
+// does not depend on the file size. The file type is taken from its first
+// bytes, not from the client's Content-Type or file name, and the SHA-256 of
+// the content is computed on the way through.
+//
+// Files are content-addressed: named <sha256>.<ext>, stored once in the
+// UploadStorage backend however often they are uploaded, and reference-counted
+// in upload_blobs. A deleted item releases its reference; the last release
+// deletes the file and its resized variants.
+//
+// The blob document is the guard, so this holds across instances: whoever
+// deletes the file first claims the document by setting deleting, and an
+// upload of a name being deleted waits for the claim to go, then inserts the
+// document again and writes the file anew. Any upload that finds no file
+// writes it, not only the one that inserted the document: put() replaces
+// atomically, so a second writer is harmless, while an inserter that failed
+// or died before its put() would otherwise leave a live blob with no file.
 @Service
+@RequiredArgsConstructor
+@Slf4j
 public class FileStorageService {
 
-    @Value("${file.upload-dir:src/main/resources/static/uploads}")
-    private String uploadDir;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
-    public String saveFile(MultipartFile file) throws Exception {
+    // longest signature checked (WebP: RIFF....WEBP)
+    private static final int SNIFF_LENGTH = 12;
 
-        String fileName =
-                UUID.randomUUID() + "_" + file.getOriginalFilename();
+    private static final String URL_PREFIX = "/uploads/";
 
-        Path path = Paths.get(uploadDir, fileName);
+    // a claim this old belongs to an instance that died while deleting
+    private static final Duration STALE_CLAIM = Duration.ofMinutes(10);
 
-        Files.createDirectories(path.getParent());
+    private static final int ACQUIRE_ATTEMPTS = 30;
 
-        Files.write(path, file.getBytes());
+    private static final long ACQUIRE_RETRY_MILLIS = 100;
 
-        return "/uploads/" + fileName;
+    private final MongoTemplate mongoTemplate;
+    private final UploadStorage uploadStorage;
+    private final UploadFileIndex uploadFileIndex;
 
+    @Value("${file.max-size:10MB}")
+    private DataSize maxSize;
+
+    public record StoredFile(String url, String sha256, long size, String contentType) {
+    }
+
+    public String saveFile(MultipartFile file) throws IOException {
+        return store(file).url();
+    }
+
+    public StoredFile store(MultipartFile file) throws IOException {
+
+        if (file.getSize() > maxSize.toBytes()) {
+            throw new IllegalArgumentException("Image must be at most " + maxSize.toMegabytes() + " MB");
+        }
+
+        MessageDigest digest = sha256();
+
+        // written to a temp file and handed to the storage only when complete
+        Path temp = uploadStorage.createTempFile();
+
+        try (InputStream in = new BufferedInputStream(
+                new DigestInputStream(file.getInputStream(), digest), BUFFER_SIZE)) {
+
+            in.mark(SNIFF_LENGTH);
+
+            ImageType type = ImageType.sniff(in.readNBytes(SNIFF_LENGTH));
+
+            in.reset();
+
+            if (type == null) {
+                throw new IllegalArgumentException("Only JPEG, PNG, GIF and WebP images are allowed");
+            }
+
+            long size = copy(in, temp);
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            String fileName = sha256 + "." + type.extension;
+
+            boolean created = acquire(fileName, size, type.contentType);
+
+            try {
+
+                // a known blob with its file in place is not written again; the temp copy is dropped
+                if (created || !uploadStorage.exists(fileName)) {
+                    uploadStorage.put(fileName, temp, type.contentType);
+                }
+
+            } catch (IOException | RuntimeException e) {
+
+                release(URL_PREFIX + fileName);
+
+                throw e;
+
+            }
+
+            return new StoredFile(
+                    URL_PREFIX + fileName,
+                    sha256,
+                    size,
+                    type.contentType
+            );
+
+        } finally {
+
+            Files.deleteIfExists(temp);
+
+        }
+    }
+
+    // Drops one reference to the file behind the URL. Files stored before
+    // content addressing have no blob entry and are left to the orphan sweep.
+    public void release(String url) {
+
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return;
+        }
+
+        String fileName = url.substring(URL_PREFIX.length());
+
+        UploadBlob blob = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(fileName)),
+                new Update().inc("refCount", -1),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadBlob.class
+        );
+
+        if (blob == null || blob.getRefCount() > 0 || blob.isDeleting()) {
+            return;
+        }
+
+        // fails when an upload raised the count again in between
+        UploadBlob claimed = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(fileName).and("refCount").lte(0).and("deleting").ne(true)),
+                new Update().set("deleting", true).set("deletingAt", LocalDateTime.now()),
+                UploadBlob.class
+        );
+
+        if (claimed == null) {
+            return;
+        }
+
+        deleteWithVariants(fileName);
+
+        mongoTemplate.remove(
+                Query.query(Criteria.where("id").is(fileName).and("deleting").is(true)),
+                UploadBlob.class
+        );
+    }
+
+    @EventListener
+    public void onItemEvent(ItemEvent event) {
+
+        if (event.getType() != ItemEvent.Type.DELETED) {
+            return;
+        }
+
+        try {
+
+            release(event.getItem().getImageUrl());
+
+        } catch (Exception e) {
+
+            log.error("Could not release image of item {}", event.getItem().getId(), e);
+
+        }
+    }
+
+    // Deletes the unreferenced files of one image (an original and its
+    // variants, all named <base>...) found by UploadGarbageCollector, unless
+    // the image was acquired after acquiredSince.
+    //
+    // Every name is claimed like release does, inserting a claim where there
+    // is no blob; an upload holding a name makes its claim fail.
+    public boolean collect(String base, List<UploadStorage.StoredObject> files, LocalDateTime acquiredSince) throws IOException {
+
+        List<String> names = files.stream().map(UploadStorage.StoredObject::name).toList();
+
+        List<String> inserted = new ArrayList<>();
+        List<String> taken = new ArrayList<>();
+
+        for (String name : names) {
+
+            try {
+
+                // a count left above zero by a crash is dropped with the file
+                UploadBlob previous = mongoTemplate.findAndModify(
+                        Query.query(Criteria.where("id").is(name)
+                                .and("deleting").ne(true)
+                                .and("lastAcquiredAt").not().gt(acquiredSince)),
+                        new Update().set("deleting", true).set("deletingAt", LocalDateTime.now()),
+                        FindAndModifyOptions.options().upsert(true),
+                        UploadBlob.class
+                );
+
+                (previous == null ? inserted : taken).add(name);
+
+            } catch (DuplicateKeyException e) {
+
+                // acquired since the cutoff, or being deleted already
+                unclaim(inserted, taken);
+
+                return false;
+
+            }
+
+        }
+
+        for (String name : names) {
+
+            uploadStorage.delete(name);
+
+            uploadFileIndex.evict(name);
+
+        }
+
+        mongoTemplate.remove(
+                Query.query(Criteria.where("id").in(names).and("deleting").is(true)),
+                UploadBlob.class
+        );
+
+        return true;
+    }
+
+    // True when this call created the blob or took over a stale claim, so the
+    // caller writes the file whether or not one exists. A blob being deleted cannot be acquired; the upsert then collides with
+    // it and is retried until the deleter removes it.
+    private boolean acquire(String fileName, long size, String contentType) {
+
+        for (int attempt = 1; ; attempt++) {
+
+            try {
+
+                UploadBlob previous = mongoTemplate.findAndModify(
+                        Query.query(Criteria.where("id").is(fileName).orOperator(
+                                Criteria.where("deleting").ne(true),
+                                Criteria.where("deletingAt").lt(LocalDateTime.now().minus(STALE_CLAIM))
+                        )),
+                        new Update()
+                                .inc("refCount", 1)
+                                .set("lastAcquiredAt", LocalDateTime.now())
+                                .unset("deleting")
+                                .unset("deletingAt")
+                                .setOnInsert("size", size)
+                                .setOnInsert("contentType", contentType)
+                                .setOnInsert("createdAt", LocalDateTime.now()),
+                        FindAndModifyOptions.options().upsert(true),
+                        UploadBlob.class
+                );
+
+                // a stale claim may have deleted part of the files
+                return previous == null || previous.isDeleting();
+
+            } catch (DuplicateKeyException e) {
+
+                if (attempt == ACQUIRE_ATTEMPTS) {
+                    throw new IllegalStateException("Upload " + fileName + " is being deleted, try again", e);
+                }
+
+                pause();
+
+            }
+
+        }
+    }
+
+    private void unclaim(List<String> inserted, List<String> taken) {
+
+        if (!inserted.isEmpty()) {
+            mongoTemplate.remove(
+                    Query.query(Criteria.where("id").in(inserted).and("deleting").is(true)),
+                    UploadBlob.class
+            );
+        }
+
+        if (!taken.isEmpty()) {
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("id").in(taken).and("deleting").is(true)),
+                    new Update().unset("deleting").unset("deletingAt"),
+                    UploadBlob.class
+            );
+        }
+    }
+
+    private static void pause() {
+
+        try {
+
+            Thread.sleep(ACQUIRE_RETRY_MILLIS);
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted while waiting for an upload to be deleted", e);
+
+        }
+    }
+
+    // the file and the <name>_<variant>.jpg files ImageVariantService wrote for it
+    private void deleteWithVariants(String fileName) {
+
+        int dot = fileName.lastIndexOf('.');
+
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+
+        try {
+
+            uploadStorage.delete(fileName);
+
+            List<String> variants;
+
+            try (Stream<UploadStorage.StoredObject> objects = uploadStorage.list(base + "_")) {
+                variants = objects.map(UploadStorage.StoredObject::name).toList();
+            }
+
+            for (String variant : variants) {
+                uploadStorage.delete(variant);
+            }
+
+        } catch (IOException e) {
+
+            log.warn("Could not delete upload {}", fileName, e);
+
+        }
+
+        uploadFileIndex.evict(fileName);
+    }
+
+    // the declared size can be wrong, so the limit is enforced on the bytes read
+    private long copy(InputStream in, Path target) throws IOException {
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        long total = 0;
+
+        try (OutputStream out = Files.newOutputStream(target)) {
+
+            int read;
+
+            while ((read = in.read(buffer)) != -1) {
+
+                total += read;
+
+                if (total > maxSize.toBytes()) {
+                    throw new IllegalArgumentException("Image must be at most " + maxSize.toMegabytes() + " MB");
+                }
+
+                out.write(buffer, 0, read);
+
+            }
+
+        }
+
+        return total;
+    }
+
+    private static MessageDigest sha256() {
+
+        try {
+
+            return MessageDigest.getInstance("SHA-256");
+
+        } catch (NoSuchAlgorithmException e) {
+
+            throw new IllegalStateException("SHA-256 not available", e);
+
+        }
+    }
+
+    enum ImageType {
+
+        JPEG("jpg", "image/jpeg"),
+        PNG("png", "image/png"),
+        GIF("gif", "image/gif"),
+        WEBP("webp", "image/webp");
+
+        private final String extension;
+        private final String contentType;
+
+        ImageType(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        static ImageType sniff(byte[] head) {
+
+            if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) {
+                return JPEG;
+            }
+
+            if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+                return PNG;
+            }
+
+            if (startsWith(head, 0, 'G', 'I', 'F', '8')) {
+                return GIF;
+            }
+
+            if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) {
+                return WEBP;
+            }
+
+            return null;
+        }
+
+        private static boolean startsWith(byte[] head, int offset, int... signature) {
+
+            if (head.length < offset + signature.length) {
+                return false;
+            }
+
+            byte[] expected = new byte[signature.length];
+
+            for (int i = 0; i < signature.length; i++) {
+                expected[i] = (byte) signature[i];
+            }
+
+            return Arrays.equals(head, offset, offset + signature.length, expected, 0, expected.length);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,287 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.repository.ItemRepository;
+import com.banasthali.backend.service.storage.UploadStorage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Resizes each new item image into a thumbnail for cards and a medium
+// variant for the detail view, off the request thread.
+//
+// Work runs on a small bounded pool; when its queue is full the item simply
+// keeps only its original image. Images are decoded with source subsampling,
+// so a 12 MP photo is never fully expanded in memory.
+@Service
+@Slf4j
+public class ImageVariantService {
+
+    private static final int THUMBNAIL_SIZE = 320;
+
+    private static final int MEDIUM_SIZE = 960;
+
+    private static final float JPEG_QUALITY = 0.8f;
+
+    private static final Pattern VARIANT_NAME = Pattern.compile("(.+)_(thumb|medium)\\.jpg");
+
+    private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UploadStorage uploadStorage;
+    private final ThreadPoolExecutor executor;
+
+    public ImageVariantService(
+            ItemRepository itemRepository,
+            ApplicationEventPublisher eventPublisher,
+            UploadStorage uploadStorage,
+            @Value("${images.variants.threads:2}") int threads,
+            @Value("${images.variants.queue-capacity:100}") int queueCapacity
+    ) {
+
+        this.itemRepository = itemRepository;
+        this.eventPublisher = eventPublisher;
+        this.uploadStorage = uploadStorage;
+
+        AtomicInteger count = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @EventListener
+    public void onItemEvent(ItemEvent event) {
+
+        Item item = event.getItem();
+
+        if (event.getType() != ItemEvent.Type.CREATED
+                || item.getImageUrl() == null
+                || item.getThumbnailUrl() != null) {
+            return;
+        }
+
+        try {
+
+            executor.execute(() -> generate(item.getId(), item.getImageUrl()));
+
+        } catch (RejectedExecutionException e) {
+
+            log.warn("Image variant queue full, item {} keeps only its original image", item.getId());
+
+        }
+    }
+
+    private void generate(String itemId, String imageUrl) {
+
+        try {
+
+            if (!imageUrl.startsWith("/uploads/")) {
+                return;
+            }
+
+            String original = imageUrl.substring("/uploads/".length());
+
+            if (!uploadStorage.exists(original)) {
+                return;
+            }
+
+            String thumbnail = variantName(original, "thumb");
+            String medium = variantName(original, "medium");
+
+            // uploads are content-addressed, so another item may already
+            // have produced the variants of the same image
+            if (!uploadStorage.exists(thumbnail) || !uploadStorage.exists(medium)) {
+
+                // decoded once, at no more than twice the medium size
+                BufferedImage source = read(original, MEDIUM_SIZE * 2);
+
+                if (source == null) {
+                    // a format ImageIO cannot decode (e.g. WebP)
+                    return;
+                }
+
+                write(scale(source, THUMBNAIL_SIZE), thumbnail);
+                write(scale(source, MEDIUM_SIZE), medium);
+
+            }
+
+            String thumbnailUrl = "/uploads/" + thumbnail;
+            String mediumUrl = "/uploads/" + medium;
+
+            itemRepository.setImageVariants(itemId, thumbnailUrl, mediumUrl).ifPresent(updated ->
+                    eventPublisher.publishEvent(new ItemEvent(ItemEvent.Type.UPDATED, updated)));
+
+        } catch (Exception e) {
+
+            log.error("Could not create image variants for item {}", itemId, e);
+
+        }
+    }
+
+    // Reads every n-th pixel so the decoded image is about maxSide on its longer side.
+    private BufferedImage read(String name, int maxSide) throws IOException {
+
+        try (InputStream in = uploadStorage.open(name);
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+
+                reader.setInput(input, true, true);
+
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+
+                int step = Math.max(1, longest / maxSide);
+
+                param.setSourceSubsampling(step, step, 0, 0);
+
+                return reader.read(0, param);
+
+            } finally {
+
+                reader.dispose();
+
+            }
+        }
+    }
+
+    // Fits the image into a size x size box, flattened onto white for JPEG.
+    private static BufferedImage scale(BufferedImage source, int size) {
+
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D graphics = scaled.createGraphics();
+
+        try {
+
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+
+            graphics.drawImage(source, 0, 0, width, height, null);
+
+        } finally {
+
+            graphics.dispose();
+
+        }
+
+        return scaled;
+    }
+
+    // The name of an upload without its extension or variant suffix; an
+    // original and its variants share it.
+    public static String originalBase(String name) {
+
+        Matcher variant = VARIANT_NAME.matcher(name);
+
+        if (variant.matches()) {
+            return variant.group(1);
+        }
+
+        int dot = name.lastIndexOf('.');
+
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    // <name>_<variant>.jpg, next to the original
+    private static String variantName(String original, String variant) {
+
+        int dot = original.lastIndexOf('.');
+
+        return (dot > 0 ? original.substring(0, dot) : original) + "_" + variant + ".jpg";
+    }
+
+    private void write(BufferedImage image, String name) throws IOException {
+
+        Path temp = uploadStorage.createTempFile();
+
+        try {
+
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+
+                ImageWriteParam param = writer.getDefaultWriteParam();
+
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+
+                writer.setOutput(output);
+
+                writer.write(null, new IIOImage(image, null, null), param);
+
+            } finally {
+
+                writer.dispose();
+
+            }
+
+            uploadStorage.put(name, temp, "image/jpeg");
+
+        } finally {
+
+            Files.deleteIfExists(temp);
+
+        }
+    }
+}
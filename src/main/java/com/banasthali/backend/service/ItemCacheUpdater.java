@@ -0,0 +1,154 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.config.CacheConfig;
+import com.banasthali.backend.dto.ItemCard;
+import com.banasthali.backend.dto.ItemResponse;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+// Keeps the cached feed and category lists in step with item writes by
+// patching the affected entries instead of dropping them.
+//
+// ItemService loads these entries with @Cacheable(sync = true), and the patch
+// runs through computeIfPresent on the same Caffeine map, so a patch either
+// waits for an in-flight load or applies to its result; it is never lost.
+@Component
+@RequiredArgsConstructor
+public class ItemCacheUpdater {
+
+    public static final String FULL = "full";
+
+    public static final String CARD = "card";
+
+    private final CaffeineCacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+
+    public static String categoryKey(String view, String category) {
+
+        return view + ":" + category.toLowerCase(Locale.ROOT);
+
+    }
+
+    // before ItemIndexer, whose last index (ItemVersions) moves the feed ETag
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onItemEvent(ItemEvent event) {
+
+        Item item = event.getItem();
+
+        boolean listed =
+                event.getType() != ItemEvent.Type.DELETED
+                        && item.isAvailable();
+
+        ConcurrentMap<Object, Object> feed = entries(CacheConfig.ITEM_FEED);
+
+        patch(feed, FULL, item, listed);
+        patch(feed, CARD, item, listed);
+
+        ConcurrentMap<Object, Object> byCategory = entries(CacheConfig.ITEMS_BY_CATEGORY);
+
+        // the category may have changed on update, so drop the item everywhere
+        for (Object key : byCategory.keySet()) {
+            patch(byCategory, key, item, false);
+        }
+
+        if (listed && item.getCategory() != null) {
+
+            patch(byCategory, categoryKey(FULL, item.getCategory()), item, true);
+            patch(byCategory, categoryKey(CARD, item.getCategory()), item, true);
+
+        }
+
+        meterRegistry.counter(
+                "items.cache.updates",
+                "event", event.getType().name().toLowerCase(Locale.ROOT)
+        ).increment();
+    }
+
+    private ConcurrentMap<Object, Object> entries(String cacheName) {
+
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(cacheName);
+
+        return cache.getNativeCache().asMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void patch(ConcurrentMap<Object, Object> entries, Object key, Item item, boolean listed) {
+
+        boolean card = key.toString().startsWith(CARD);
+
+        entries.computeIfPresent(key, (k, cached) -> card
+
+                ? replace((List<ItemCard>) cached, item.getId(),
+                        listed ? ItemCard.fromItem(item) : null,
+                        ItemCard::id, ItemCard::createdAt)
+
+                : replace((List<ItemResponse>) cached, item.getId(),
+                        listed ? ItemResponse.fromItem(item) : null,
+                        ItemResponse::getId, ItemResponse::getCreatedAt));
+    }
+
+    // Copy of the list without the item, with the replacement (if any) at its
+    // original position, or in createdAt-descending order when it is new.
+    private static <T> List<T> replace(
+            List<T> list,
+            String id,
+            T replacement,
+            Function<T, String> idOf,
+            Function<T, LocalDateTime> createdAtOf
+    ) {
+
+        List<T> patched = new ArrayList<>(list.size() + 1);
+
+        int position = -1;
+
+        for (T element : list) {
+
+            if (id.equals(idOf.apply(element))) {
+                position = patched.size();
+            } else {
+                patched.add(element);
+            }
+
+        }
+
+        if (replacement != null) {
+
+            if (position < 0) {
+
+                LocalDateTime createdAt = createdAtOf.apply(replacement);
+
+                position = 0;
+
+                while (createdAt != null
+                        && position < patched.size()
+                        && createdAtOf.apply(patched.get(position)) != null
+                        && createdAtOf.apply(patched.get(position)).isAfter(createdAt)) {
+                    position++;
+                }
+
+            }
+
+            patched.add(position, replacement);
+
+        }
+
+        return Collections.unmodifiableList(patched);
+    }
+}
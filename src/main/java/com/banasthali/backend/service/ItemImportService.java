@@ -0,0 +1,260 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.BulkImportResult;
+import com.banasthali.backend.dto.ItemRequest;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.User;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bulk listing for hostel committees. Reads a JSON array or NDJSON one item
+// at a time, validates each as it arrives and writes the valid ones in
+// unordered insertMany batches, so one bad item never blocks the others.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ItemImportService {
+
+    public static final int MAX_ITEMS = 1000;
+
+    private static final int BATCH_SIZE = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BulkImportResult importItems(
+            InputStream body,
+            User seller
+    ) throws IOException {
+
+        List<BulkImportResult.ItemResult> results = new ArrayList<>();
+
+        List<Item> batch = new ArrayList<>(BATCH_SIZE);
+        List<Integer> batchIndexes = new ArrayList<>(BATCH_SIZE);
+
+        String error = null;
+
+        int index = 0;
+
+        try (JsonParser parser = objectMapper.createParser(body)) {
+
+            JsonToken token = parser.nextToken();
+
+            // a top-level array, or NDJSON, which Jackson reads as a
+            // sequence of root-level values
+            boolean array = token == JsonToken.START_ARRAY;
+
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && token != JsonToken.END_ARRAY) {
+
+                if (index == MAX_ITEMS) {
+
+                    error = "At most " + MAX_ITEMS + " items per request; the rest were not read";
+
+                    break;
+
+                }
+
+                ItemRequest request;
+
+                try {
+
+                    request = objectMapper.readValue(parser, ItemRequest.class);
+
+                } catch (JsonProcessingException e) {
+
+                    // the parser cannot be resynchronised inside a broken value
+                    error = "Malformed item at index " + index + ": " + e.getOriginalMessage();
+
+                    break;
+
+                }
+
+                List<String> errors = validate(request);
+
+                if (errors.isEmpty()) {
+
+                    batch.add(toItem(request, seller));
+                    batchIndexes.add(index);
+
+                    if (batch.size() == BATCH_SIZE) {
+                        flush(batch, batchIndexes, results);
+                    }
+
+                } else {
+
+                    results.add(new BulkImportResult.ItemResult(
+                            index, BulkImportResult.Status.INVALID, null, errors));
+
+                }
+
+                index++;
+
+                token = parser.nextToken();
+
+            }
+
+        } catch (JsonProcessingException e) {
+
+            error = "Malformed JSON after item " + index + ": " + e.getOriginalMessage();
+
+        }
+
+        // items read before a parse error are still written
+        flush(batch, batchIndexes, results);
+
+        results.sort((a, b) -> Integer.compare(a.index(), b.index()));
+
+        int created = 0;
+
+        for (BulkImportResult.ItemResult result : results) {
+
+            if (result.status() == BulkImportResult.Status.CREATED) {
+                created++;
+            }
+
+        }
+
+        return new BulkImportResult(created, results.size() - created, results, error);
+    }
+
+    private List<String> validate(ItemRequest request) {
+
+        List<String> errors = new ArrayList<>();
+
+        if (request == null) {
+
+            errors.add("Item must be a JSON object");
+
+            return errors;
+
+        }
+
+        for (ConstraintViolation<ItemRequest> violation : validator.validate(request)) {
+            errors.add(violation.getMessage());
+        }
+
+        // required by the form endpoint too
+        if (request.getSellerPhone() == null || request.getSellerPhone().isBlank()) {
+            errors.add("Seller phone is required");
+        }
+
+        if (request.getSellerHostel() == null || request.getSellerHostel().isBlank()) {
+            errors.add("Seller hostel is required");
+        }
+
+        return errors;
+    }
+
+    private static Item toItem(ItemRequest request, User seller) {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        return Item.builder()
+                // assigned here so results can report ids without reading back
+                .id(new ObjectId().toHexString())
+                .title(request.getTitle())
+                .description(request.getDescription())
+                .price(request.getPrice())
+                .category(request.getCategory())
+                .sellerId(seller.getId())
+                .sellerName(seller.getDisplayName())
+                .sellerPhone(request.getSellerPhone())
+                .sellerHostel(request.getSellerHostel())
+                .sellerRoom(request.getSellerRoom())
+                .available(true)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private void flush(
+            List<Item> batch,
+            List<Integer> batchIndexes,
+            List<BulkImportResult.ItemResult> results
+    ) {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // position in the batch -> write error
+        Map<Integer, String> failures = new HashMap<>();
+
+        try {
+
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class)
+                    .insert(batch)
+                    .execute();
+
+        } catch (BulkOperationException e) {
+
+            for (BulkWriteError writeError : e.getErrors()) {
+                failures.put(writeError.getIndex(), writeError.getMessage());
+            }
+
+        } catch (Exception e) {
+
+            log.error("Bulk insert of {} items failed", batch.size(), e);
+
+            for (int i = 0; i < batch.size(); i++) {
+                failures.put(i, "Could not be saved");
+            }
+
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+
+            Item item = batch.get(i);
+
+            String failure = failures.get(i);
+
+            if (failure == null) {
+
+                results.add(new BulkImportResult.ItemResult(
+                        batchIndexes.get(i), BulkImportResult.Status.CREATED, item.getId(), List.of()));
+
+                eventPublisher.publishEvent(
+                        new ItemEvent(ItemEvent.Type.CREATED, item)
+                );
+
+            } else {
+
+                results.add(new BulkImportResult.ItemResult(
+                        batchIndexes.get(i), BulkImportResult.Status.FAILED, null, List.of(failure)));
+
+            }
+
+        }
+
+        batch.clear();
+        batchIndexes.clear();
+    }
+}
@@ -1,14 +1,29 @@
 package com.banasthali.backend.service;
 
+import com.banasthali.backend.config.CacheConfig;
+import com.banasthali.backend.dto.CursorPage;
+import com.banasthali.backend.dto.ItemCard;
+import com.banasthali.backend.dto.ItemFacets;
 import com.banasthali.backend.dto.ItemRequest;
 import com.banasthali.backend.dto.ItemResponse;
+import com.banasthali.backend.dto.ItemSuggestion;
+import com.banasthali.backend.event.ItemEvent;
 import com.banasthali.backend.model.Item;
 import com.banasthali.backend.model.User;
+import com.banasthali.backend.repository.ItemCursor;
+import com.banasthali.backend.repository.ItemFilter;
 import com.banasthali.backend.repository.ItemRepository;
+import com.banasthali.backend.service.search.ItemFacetIndex;
+import com.banasthali.backend.service.search.ItemFuzzyIndex;
+import com.banasthali.backend.service.search.ItemIndexer;
+import com.banasthali.backend.service.search.ItemSearchIndex;
+import com.banasthali.backend.service.search.ItemSuggestIndex;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -18,6 +33,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,8 +41,20 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ItemService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int DEFAULT_SUGGESTIONS = 8;
+
     private final ItemRepository itemRepository;
     private final FileStorageService fileStorageService;
+    private final ItemIndexer itemIndexer;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemFuzzyIndex itemFuzzyIndex;
+    private final ItemSuggestIndex itemSuggestIndex;
+    private final ItemFacetIndex itemFacetIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${file.upload-dir:src/main/resources/static/uploads}")
     private String uploadDir;
@@ -76,10 +104,12 @@ public class ItemService {
 
             }
 
-        }catch(Exception e){
+        }catch(IOException e){
 
+            // a rejected type or size is an IllegalArgumentException and reaches the client as 400
             throw new RuntimeException(
-                    "Image upload failed"
+                    "Image upload failed",
+                    e
             );
 
         }
@@ -134,12 +164,21 @@ public class ItemService {
 
                 .build();
 
+        item.setUpdatedAt(
+                item.getCreatedAt()
+        );
+
         itemRepository.save(item);
 
+        eventPublisher.publishEvent(
+                new ItemEvent(ItemEvent.Type.CREATED, item)
+        );
+
         return mapToResponse(item);
 
     }
 
+    @Cacheable(cacheNames = CacheConfig.ITEM_FEED, key = "'full'", sync = true)
     public List<ItemResponse> getAllItems() {
 
         return itemRepository
@@ -157,8 +196,66 @@ public class ItemService {
 
     }
 
+    public CursorPage<ItemResponse> getItemsPage(
+            String cursor,
+            Integer limit
+    ){
+
+        int pageSize = pageSize(limit);
+
+        // one extra row tells us whether another page exists
+        List<Item> items =
+                itemRepository.findAvailablePage(
+                        decodeCursor(cursor),
+                        pageSize + 1,
+                        Item.class
+                );
+
+        return toPage(
+                items,
+                pageSize,
+                ItemCursor::after,
+                this::mapToResponse
+        );
+
+    }
+
+    @Cacheable(cacheNames = CacheConfig.ITEM_FEED, key = "'card'", sync = true)
+    public List<ItemCard> getItemCards() {
+
+        return itemRepository
+                .findByAvailableTrueOrderByCreatedAtDesc(
+                        ItemCard.class
+                );
+
+    }
+
+    public CursorPage<ItemCard> getItemCardsPage(
+            String cursor,
+            Integer limit
+    ){
+
+        int pageSize = pageSize(limit);
+
+        List<ItemCard> cards =
+                itemRepository.findAvailablePage(
+                        decodeCursor(cursor),
+                        pageSize + 1,
+                        ItemCard.class
+                );
+
+        return toPage(
+                cards,
+                pageSize,
+                card -> new ItemCursor(card.createdAt(), card.id()),
+                Function.identity()
+        );
+
+    }
+
     public List<ItemResponse> searchItems(
-            String query
+            String query,
+            boolean fuzzy
     ){
 
         if(
@@ -170,10 +267,7 @@ public class ItemService {
 
         }
 
-        return itemRepository
-                .searchItems(
-                        query.trim()
-                )
+        return findMatchingItems(query.trim(), fuzzy)
 
                 .stream()
 
@@ -187,6 +281,81 @@ public class ItemService {
 
     }
 
+    public List<ItemCard> searchItemCards(
+            String query,
+            boolean fuzzy
+    ){
+
+        if(
+                query == null ||
+                        query.trim().isEmpty()
+        ){
+
+            return getItemCards();
+
+        }
+
+        return findMatchingItems(query.trim(), fuzzy)
+
+                .stream()
+
+                .map(
+                        ItemCard::fromItem
+                )
+
+                .collect(
+                        Collectors.toList()
+                );
+
+    }
+
+    public List<ItemSuggestion> suggest(
+            String prefix,
+            Integer limit
+    ){
+
+        int count =
+                limit == null
+                        ? DEFAULT_SUGGESTIONS
+                        : Math.max(1, Math.min(limit, ItemSuggestIndex.MAX_SUGGESTIONS));
+
+        return itemSuggestIndex.suggest(
+                prefix,
+                count
+        );
+
+    }
+
+    public ItemFacets getFacets() {
+
+        return itemFacetIndex.facets();
+
+    }
+
+    private List<Item> findMatchingItems(
+            String query,
+            boolean fuzzy
+    ){
+
+        // ranked answer from memory once the index is loaded,
+        // the regex scan is only a fallback while it is not
+        if(itemIndexer.isReady()){
+
+            return fuzzy
+                    ? itemFuzzyIndex.search(query)
+                    : itemSearchIndex.search(query);
+
+        }
+
+        return itemRepository.searchItems(query);
+
+    }
+
+    @Cacheable(
+            cacheNames = CacheConfig.ITEMS_BY_CATEGORY,
+            key = "T(com.banasthali.backend.service.ItemCacheUpdater).categoryKey('full', #category)",
+            sync = true
+    )
     public List<ItemResponse> getItemsByCategory(
             String category
     ){
@@ -208,6 +377,61 @@ public class ItemService {
 
     }
 
+    @Cacheable(
+            cacheNames = CacheConfig.ITEMS_BY_CATEGORY,
+            key = "T(com.banasthali.backend.service.ItemCacheUpdater).categoryKey('card', #category)",
+            sync = true
+    )
+    public List<ItemCard> getItemCardsByCategory(
+            String category
+    ){
+
+        return itemRepository
+                .findByCategoryIgnoreCaseAndAvailableTrue(
+                        category,
+                        ItemCard.class
+                );
+
+    }
+
+    public List<ItemResponse> filterItems(
+            ItemFilter filter,
+            Integer limit
+    ){
+
+        return itemRepository
+                .findFiltered(
+                        filter,
+                        limit == null ? null : pageSize(limit),
+                        Item.class
+                )
+
+                .stream()
+
+                .map(
+                        this::mapToResponse
+                )
+
+                .collect(
+                        Collectors.toList()
+                );
+
+    }
+
+    public List<ItemCard> filterItemCards(
+            ItemFilter filter,
+            Integer limit
+    ){
+
+        return itemRepository
+                .findFiltered(
+                        filter,
+                        limit == null ? null : pageSize(limit),
+                        ItemCard.class
+                );
+
+    }
+
     public ItemResponse getItemById(
             String id
     ){
@@ -246,6 +470,30 @@ public class ItemService {
 
     }
 
+    public CursorPage<ItemResponse> getItemsBySellerPage(
+            String sellerId,
+            String cursor,
+            Integer limit
+    ){
+
+        int pageSize = pageSize(limit);
+
+        List<Item> items =
+                itemRepository.findSellerPage(
+                        sellerId,
+                        decodeCursor(cursor),
+                        pageSize + 1
+                );
+
+        return toPage(
+                items,
+                pageSize,
+                ItemCursor::after,
+                this::mapToResponse
+        );
+
+    }
+
     public ItemResponse updateItem(
             String id,
             ItemRequest request,
@@ -274,40 +522,26 @@ public class ItemService {
 
         }
 
-        if(request.getTitle() != null){
-
-            item.setTitle(
-                    request.getTitle()
-            );
-
-        }
-
-        if(request.getDescription() != null){
-
-            item.setDescription(
-                    request.getDescription()
-            );
-
-        }
-
-        if(request.getPrice() != null){
-
-            item.setPrice(
-                    request.getPrice()
-            );
-
-        }
-
-        if(request.getCategory() != null){
-
-            item.setCategory(
-                    request.getCategory()
-            );
+        // only the edited fields are written: a full save of the item read
+        // above would reset image variants set in the background since
+        Item updatedItem =
+                itemRepository.updateListing(
+                                id,
+                                request.getTitle(),
+                                request.getDescription(),
+                                request.getPrice(),
+                                request.getCategory()
+                        )
 
-        }
+                        .orElseThrow(
+                                () -> new IllegalArgumentException(
+                                        "Item not found"
+                                )
+                        );
 
-        Item updatedItem =
-                itemRepository.save(item);
+        eventPublisher.publishEvent(
+                new ItemEvent(ItemEvent.Type.UPDATED, updatedItem)
+        );
 
         return mapToResponse(updatedItem);
 
@@ -342,6 +576,10 @@ public class ItemService {
 
         itemRepository.delete(item);
 
+        eventPublisher.publishEvent(
+                new ItemEvent(ItemEvent.Type.DELETED, item)
+        );
+
     }
 
     public ItemResponse markAsSold(
@@ -371,11 +609,96 @@ public class ItemService {
 
         }
 
-        item.setAvailable(false);
+        // a partial update, like updateItem
+        Item soldItem =
+                itemRepository.markSold(id)
 
-        itemRepository.save(item);
+                        .orElseThrow(
+                                () -> new IllegalArgumentException(
+                                        "Item not found"
+                                )
+                        );
 
-        return mapToResponse(item);
+        eventPublisher.publishEvent(
+                new ItemEvent(ItemEvent.Type.SOLD, soldItem)
+        );
+
+        return mapToResponse(soldItem);
+
+    }
+
+    private int pageSize(
+            Integer limit
+    ){
+
+        if(limit == null){
+
+            return DEFAULT_PAGE_SIZE;
+
+        }
+
+        if(limit < 1){
+
+            throw new IllegalArgumentException(
+                    "limit must be at least 1"
+            );
+
+        }
+
+        return Math.min(limit, MAX_PAGE_SIZE);
+
+    }
+
+    private ItemCursor decodeCursor(
+            String cursor
+    ){
+
+        if(
+                cursor == null ||
+                        cursor.isBlank()
+        ){
+
+            return null;
+
+        }
+
+        return ItemCursor.decode(cursor);
+
+    }
+
+    private <T, R> CursorPage<R> toPage(
+            List<T> rows,
+            int pageSize,
+            Function<T, ItemCursor> cursorOf,
+            Function<T, R> mapper
+    ){
+
+        boolean hasMore =
+                rows.size() > pageSize;
+
+        List<T> page =
+                hasMore
+                        ? rows.subList(0, pageSize)
+                        : rows;
+
+        String nextCursor =
+                hasMore
+                        ? cursorOf.apply(page.get(page.size() - 1)).encode()
+                        : null;
+
+        return CursorPage.<R>builder()
+
+                .items(
+                        page.stream()
+                                .map(mapper)
+                                .collect(Collectors.toList())
+                )
+
+                .nextCursor(
+                        nextCursor
+                )
+
+                .build();
 
     }
 
@@ -409,6 +732,14 @@ public class ItemService {
                         item.getImageUrl()
                 )
 
+                .thumbnailUrl(
+                        item.getThumbnailUrl()
+                )
+
+                .mediumUrl(
+                        item.getMediumUrl()
+                )
+
                 .sellerId(
                         item.getSellerId()
                 )
@@ -437,6 +768,10 @@ public class ItemService {
                         item.getCreatedAt()
                 )
 
+                .updatedAt(
+                        item.getUpdatedAt()
+                )
+
                 .build();
 
     }
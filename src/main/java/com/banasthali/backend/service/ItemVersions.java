@@ -0,0 +1,110 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.service.search.ItemIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versions behind the ETags of item reads, kept in memory so a conditional
+// GET can be answered before Mongo or the cache is touched.
+//
+// An item's version is its updatedAt (createdAt for items written before that
+// field existed). The feed version counts item events since startup; the boot
+// time is part of the tag so a restart never reuses an old one.
+//
+// Applied last among the indexes, and ItemCacheUpdater runs before
+// ItemIndexer, so a new feed tag is only handed out once the cached feed
+// already has the change.
+//
+// Only this node's writes move these versions, so they are only right for
+// a single instance. With several instances on one database set
+// etags.in-memory to false: the feed then has no ETag (its cache is per
+// node too) and item tags come from the stored updatedAt.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ItemVersions implements ItemIndex {
+
+    private final long bootTime = System.currentTimeMillis();
+
+    @Value("${etags.in-memory:true}")
+    private boolean inMemory;
+
+    private final AtomicLong feedVersion = new AtomicLong();
+
+    // item id -> version; holds the available items from startup on and
+    // every item written since
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    @Override
+    public void rebuild(List<Item> availableItems) {
+
+        versions.clear();
+
+        for (Item item : availableItems) {
+
+            if (item.getId() != null) {
+                versions.put(item.getId(), versionOf(item.getUpdatedAt(), item.getCreatedAt()));
+            }
+
+        }
+
+        feedVersion.incrementAndGet();
+    }
+
+    @Override
+    public void apply(ItemEvent event) {
+
+        Item item = event.getItem();
+
+        if (event.getType() == ItemEvent.Type.DELETED) {
+            versions.remove(item.getId());
+        } else {
+            versions.put(item.getId(), versionOf(item.getUpdatedAt(), item.getCreatedAt()));
+        }
+
+        feedVersion.incrementAndGet();
+    }
+
+    // null when versions are not kept in memory
+    public String feedETag() {
+        return inMemory ? "\"items-" + bootTime + "-" + feedVersion.get() + "\"" : null;
+    }
+
+    // null when the item is not tracked; the caller then has to load it
+    public String itemETag(String id) {
+
+        if (!inMemory) {
+            return null;
+        }
+
+        Long version = versions.get(id);
+
+        return version == null ? null : itemETag(id, version);
+    }
+
+    public static String itemETag(String id, LocalDateTime updatedAt, LocalDateTime createdAt) {
+        return itemETag(id, versionOf(updatedAt, createdAt));
+    }
+
+    private static String itemETag(String id, long version) {
+        return "\"item-" + id + "-" + version + "\"";
+    }
+
+    // millisecond precision, as stored by Mongo
+    private static long versionOf(LocalDateTime updatedAt, LocalDateTime createdAt) {
+
+        LocalDateTime version = updatedAt != null ? updatedAt : createdAt;
+
+        return version == null ? 0 : version.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
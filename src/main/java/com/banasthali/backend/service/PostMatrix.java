@@ -0,0 +1,178 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.PostDistanceMatrix;
+import com.banasthali.backend.model.Post;
+import com.banasthali.backend.repository.PostRepository;
+import com.banasthali.backend.util.GeoDistance;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Distances and bus ETAs between every pair of posts, worked out once
+// whenever the set of posts changes (PostController calls rebuild) instead
+// of on every lookup. Kept as flat row-major arrays behind a volatile
+// reference, so reads never lock and a rebuild swaps in a whole new matrix.
+// The posts' coordinates are kept alongside, for per-request ETA lookups.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PostMatrix {
+
+    // average bus speed on campus roads
+    public static final double AVG_SPEED_KMH = 25;
+
+    private final PostRepository postRepository;
+
+    @Value("${mongo.preload.post-matrix:true}")
+    private boolean preload;
+
+    private volatile Matrix matrix = Matrix.EMPTY;
+
+    private record Matrix(
+            Map<String, Integer> index,
+            double[] latitudes,
+            double[] longitudes,
+            PostDistanceMatrix view
+    ) {
+
+        static final Matrix EMPTY = new Matrix(
+                Map.of(),
+                new double[0],
+                new double[0],
+                new PostDistanceMatrix(List.of(), new double[0], new double[0])
+        );
+    }
+
+    public record Coordinates(
+            double latitude,
+            double longitude
+    ) {
+    }
+
+    public static double etaMinutes(double meters) {
+        return meters / 1000 / AVG_SPEED_KMH * 60;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+
+        if (!preload) {
+            return;
+        }
+
+        try {
+
+            rebuild();
+
+        } catch (Exception e) {
+
+            log.error("Could not build the post distance matrix", e);
+
+        }
+    }
+
+    public synchronized void rebuild() {
+
+        List<Post> posts = new ArrayList<>();
+
+        for (Post post : postRepository.findAll()) {
+
+            if (post.getLatitude() != null && post.getLongitude() != null) {
+                posts.add(post);
+            }
+
+        }
+
+        int n = posts.size();
+
+        List<String> ids = new ArrayList<>(n);
+
+        Map<String, Integer> index = new HashMap<>();
+
+        double[] meters = new double[n * n];
+
+        double[] minutes = new double[n * n];
+
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+
+        for (int i = 0; i < n; i++) {
+
+            Post from = posts.get(i);
+
+            ids.add(from.getId());
+
+            index.put(from.getId(), i);
+
+            latitudes[i] = from.getLatitude();
+            longitudes[i] = from.getLongitude();
+
+            // symmetric, so each pair is computed once
+            for (int j = i + 1; j < n; j++) {
+
+                Post to = posts.get(j);
+
+                double distance = GeoDistance.meters(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+
+                meters[i * n + j] = distance;
+                meters[j * n + i] = distance;
+
+                minutes[i * n + j] = etaMinutes(distance);
+                minutes[j * n + i] = minutes[i * n + j];
+
+            }
+
+        }
+
+        matrix = new Matrix(index, latitudes, longitudes, new PostDistanceMatrix(List.copyOf(ids), meters, minutes));
+
+        log.info("Built the distance matrix for {} posts", n);
+    }
+
+    // empty when the post is unknown or has no coordinates
+    public Optional<Coordinates> coordinates(String postId) {
+
+        Matrix current = matrix;
+
+        Integer i = current.index().get(postId);
+
+        if (i == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Coordinates(current.latitudes()[i], current.longitudes()[i]));
+    }
+
+    // NaN when either post is unknown or has no coordinates
+    public double distanceMeters(String fromPostId, String toPostId) {
+
+        Matrix current = matrix;
+
+        Integer from = current.index().get(fromPostId);
+        Integer to = current.index().get(toPostId);
+
+        if (from == null || to == null) {
+            return Double.NaN;
+        }
+
+        return current.view().distanceMeters()[from * current.index().size() + to];
+    }
+
+    public double etaMinutes(String fromPostId, String toPostId) {
+        return etaMinutes(distanceMeters(fromPostId, toPostId));
+    }
+
+    // shared with every caller, which must not modify the arrays
+    public PostDistanceMatrix view() {
+        return matrix.view();
+    }
+}
@@ -0,0 +1,153 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.ItemCard;
+import com.banasthali.backend.dto.SavedSearchMatch;
+import com.banasthali.backend.dto.SavedSearchRequest;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.SavedSearch;
+import com.banasthali.backend.model.User;
+import com.banasthali.backend.repository.SavedSearchRepository;
+import com.banasthali.backend.service.search.SavedSearchIndex;
+import com.banasthali.backend.service.search.TextAnalyzer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SavedSearchService {
+
+    private static final int MAX_SAVED_SEARCHES = 20;
+
+    private final SavedSearchRepository savedSearchRepository;
+    private final SavedSearchIndex savedSearchIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public SavedSearch create(
+            SavedSearchRequest request,
+            User user
+    ){
+
+        if(TextAnalyzer.tokenize(request.getQuery()).isEmpty()){
+
+            throw new IllegalArgumentException(
+                    "Query must contain at least one word"
+            );
+
+        }
+
+        if(savedSearchRepository.countByUserId(user.getId()) >= MAX_SAVED_SEARCHES){
+
+            throw new IllegalArgumentException(
+                    "You can save at most " + MAX_SAVED_SEARCHES + " searches"
+            );
+
+        }
+
+        SavedSearch savedSearch = SavedSearch.builder()
+
+                .userId(user.getId())
+
+                .query(request.getQuery().trim())
+
+                .category(request.getCategory())
+
+                .maxPrice(request.getMaxPrice())
+
+                .createdAt(LocalDateTime.now())
+
+                .build();
+
+        SavedSearch saved = savedSearchRepository.save(savedSearch);
+
+        savedSearchIndex.put(saved);
+
+        return saved;
+
+    }
+
+    public List<SavedSearch> getForUser(
+            User user
+    ){
+
+        return savedSearchRepository.findByUserIdOrderByCreatedAtDesc(
+                user.getId()
+        );
+
+    }
+
+    public void delete(
+            String id,
+            User user
+    ){
+
+        SavedSearch savedSearch = savedSearchRepository.findById(id)
+
+                .orElseThrow(
+                        () -> new IllegalArgumentException(
+                                "Saved search not found"
+                        )
+                );
+
+        if(!savedSearch.getUserId().equals(user.getId())){
+
+            throw new IllegalArgumentException(
+                    "You can only delete your own saved searches"
+            );
+
+        }
+
+        savedSearchRepository.delete(savedSearch);
+
+        savedSearchIndex.delete(id);
+
+    }
+
+    // Pushes each new listing to the owners of the saved searches it matches.
+    @EventListener
+    public void onItemEvent(ItemEvent event) {
+
+        if(event.getType() != ItemEvent.Type.CREATED){
+            return;
+        }
+
+        Item item = event.getItem();
+
+        for(SavedSearch savedSearch : savedSearchIndex.match(item)){
+
+            // no alert for your own listing
+            if(savedSearch.getUserId().equals(item.getSellerId())){
+                continue;
+            }
+
+            try{
+
+                messagingTemplate.convertAndSend(
+
+                        "/topic/user/" + savedSearch.getUserId(),
+
+                        new SavedSearchMatch(
+                                savedSearch.getId(),
+                                savedSearch.getQuery(),
+                                ItemCard.fromItem(item)
+                        )
+
+                );
+
+            }catch(Exception e){
+
+                log.error("Could not notify user {} of item {}", savedSearch.getUserId(), item.getId(), e);
+
+            }
+
+        }
+
+    }
+}
@@ -0,0 +1,181 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.service.storage.UploadStorage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Metadata of served uploads, so a hot image costs a map lookup instead of
+// a stat (or a GridFS query) per request. The response headers are worked
+// out once per file.
+//
+// Content-addressed names (<sha256>.<ext> and their _thumb/_medium variants)
+// never change content and are cached by clients for a year. Older uploads
+// keep their UUID names and are revalidated daily. Entries are evicted when
+// FileStorageService deletes a file; the expiry only covers files removed
+// by hand or by another node.
+//
+// Images shipped in the jar under static/uploads (the seed items' pictures)
+// are found when the storage has no file of that name, and marked bundled.
+@Service
+@RequiredArgsConstructor
+public class UploadFileIndex {
+
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}(_[a-z]+)?\\.[a-z0-9]+");
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String REVALIDATE_DAILY = "public, max-age=86400";
+
+    private static final String BUNDLED_LOCATION = "static/uploads/";
+
+    private final Cache<String, UploadFile> files = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    private final UploadStorage uploadStorage;
+
+    public record UploadFile(
+            String name,
+            long size,
+            long lastModified,
+            String contentType,
+            String eTag,
+            String cacheControl,
+            boolean bundled
+    ) {
+    }
+
+    public Optional<UploadFile> lookup(String name) {
+
+        // temp files of in-flight uploads start with a dot
+        if (name.isEmpty() || name.startsWith(".")) {
+            return Optional.empty();
+        }
+
+        UploadFile cached = files.getIfPresent(name);
+
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // misses are not cached: a variant is requested before it is written
+        UploadFile file = load(name);
+
+        if (file != null) {
+            files.put(name, file);
+        }
+
+        return Optional.ofNullable(file);
+    }
+
+    // content of a file looked up as bundled
+    public InputStream openBundled(String name) throws IOException {
+        return new ClassPathResource(BUNDLED_LOCATION + name).getInputStream();
+    }
+
+    // the file and its <base>_<variant> siblings
+    public void evict(String fileName) {
+
+        int dot = fileName.lastIndexOf('.');
+
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+
+        files.invalidate(fileName);
+
+        files.asMap().keySet().removeIf(name -> name.startsWith(base + "_"));
+    }
+
+    private UploadFile load(String name) {
+
+        UploadStorage.StoredObject object;
+
+        try {
+
+            object = uploadStorage.stat(name).orElse(null);
+
+        } catch (IOException e) {
+
+            throw new IllegalStateException("Could not read upload " + name, e);
+
+        }
+
+        if (object == null) {
+            return loadBundled(name);
+        }
+
+        if (CONTENT_ADDRESSED.matcher(name).matches()) {
+
+            return new UploadFile(
+                    name,
+                    object.size(),
+                    object.lastModified(),
+                    object.contentType(),
+                    "\"" + name.substring(0, name.lastIndexOf('.')) + "\"",
+                    IMMUTABLE,
+                    false
+            );
+
+        }
+
+        return new UploadFile(
+                name,
+                object.size(),
+                object.lastModified(),
+                object.contentType(),
+                eTag(object.size(), object.lastModified()),
+                REVALIDATE_DAILY,
+                false
+        );
+    }
+
+    private static UploadFile loadBundled(String name) {
+
+        if (name.contains("/") || name.contains("\\")) {
+            return null;
+        }
+
+        Resource resource = new ClassPathResource(BUNDLED_LOCATION + name);
+
+        if (!resource.isReadable()) {
+            return null;
+        }
+
+        try {
+
+            long size = resource.contentLength();
+            long lastModified = resource.lastModified();
+
+            return new UploadFile(
+                    name,
+                    size,
+                    lastModified,
+                    MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString(),
+                    eTag(size, lastModified),
+                    REVALIDATE_DAILY,
+                    true
+            );
+
+        } catch (IOException e) {
+
+            throw new IllegalStateException("Could not read bundled upload " + name, e);
+
+        }
+    }
+
+    private static String eTag(long size, long lastModified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+}
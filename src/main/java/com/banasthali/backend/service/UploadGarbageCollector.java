@@ -0,0 +1,192 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.service.storage.UploadStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Mark and sweep for uploads no item points at: images of items deleted
+// before uploads were reference-counted, and files left by failed requests.
+//
+// Mark reads every Item.imageUrl; sweep lists the storage and deletes the
+// rest, an image (original plus variants) at a time, in small batches with
+// a pause in between so the storage and Mongo are never hammered. Files
+// younger than min-age are skipped, which covers uploads whose item is not
+// saved yet. Freed space is counted in uploads.gc.reclaimed.bytes.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "file.gc.enabled", havingValue = "true", matchIfMissing = true)
+public class UploadGarbageCollector {
+
+    private static final String URL_PREFIX = "/uploads/";
+
+    private final MongoTemplate mongoTemplate;
+    private final UploadStorage uploadStorage;
+    private final FileStorageService fileStorageService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${file.gc.min-age:PT1H}")
+    private Duration minAge;
+
+    @Value("${file.gc.batch-size:50}")
+    private int batchSize;
+
+    @Value("${file.gc.batch-pause:PT1S}")
+    private Duration batchPause;
+
+    @Value("${file.gc.max-per-run:1000}")
+    private int maxPerRun;
+
+    @Scheduled(
+            initialDelayString = "${file.gc.initial-delay:PT10M}",
+            fixedDelayString = "${file.gc.interval:PT6H}"
+    )
+    public void collect() {
+
+        try {
+
+            // A deduplicated upload acquired just before the mark may get its
+            // item saved only after mark() read the items, so acquisitions
+            // within min-age of the mark protect an image, as new files do.
+            LocalDateTime acquiredSince = LocalDateTime.now().minus(minAge);
+
+            Set<String> live = mark();
+
+            Map<String, List<UploadStorage.StoredObject>> orphans = sweepCandidates(live);
+
+            sweep(orphans, acquiredSince);
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+        } catch (Exception e) {
+
+            log.error("Upload garbage collection failed", e);
+
+        }
+    }
+
+    // base names of every image an item uses
+    private Set<String> mark() {
+
+        Query query = new Query();
+
+        query.fields().include("imageUrl");
+
+        Set<String> live = new HashSet<>();
+
+        try (Stream<Item> items = mongoTemplate.stream(query, Item.class)) {
+
+            items.map(Item::getImageUrl)
+                    .filter(url -> url != null && url.startsWith(URL_PREFIX))
+                    .forEach(url -> live.add(ImageVariantService.originalBase(url.substring(URL_PREFIX.length()))));
+
+        }
+
+        return live;
+    }
+
+    // unreferenced files grouped by image; an image with any recent file is left alone
+    private Map<String, List<UploadStorage.StoredObject>> sweepCandidates(Set<String> live) throws IOException {
+
+        long cutoff = System.currentTimeMillis() - minAge.toMillis();
+
+        Map<String, List<UploadStorage.StoredObject>> candidates = new LinkedHashMap<>();
+
+        Set<String> recent = new HashSet<>();
+
+        try (Stream<UploadStorage.StoredObject> files = uploadStorage.list("")) {
+
+            files.forEach(file -> {
+
+                String base = ImageVariantService.originalBase(file.name());
+
+                if (live.contains(base)) {
+                    return;
+                }
+
+                if (file.lastModified() > cutoff) {
+                    recent.add(base);
+                }
+
+                candidates.computeIfAbsent(base, key -> new ArrayList<>()).add(file);
+
+            });
+
+        }
+
+        candidates.keySet().removeAll(recent);
+
+        return candidates;
+    }
+
+    private void sweep(
+            Map<String, List<UploadStorage.StoredObject>> orphans,
+            LocalDateTime acquiredSince
+    ) throws IOException, InterruptedException {
+
+        if (orphans.isEmpty()) {
+            return;
+        }
+
+        long reclaimed = 0;
+
+        int files = 0;
+
+        int images = 0;
+
+        for (Map.Entry<String, List<UploadStorage.StoredObject>> orphan : orphans.entrySet()) {
+
+            if (images == maxPerRun) {
+
+                log.info("Upload GC stopped after {} images; the rest wait for the next run", maxPerRun);
+
+                break;
+
+            }
+
+            if (images > 0 && images % batchSize == 0) {
+                Thread.sleep(batchPause.toMillis());
+            }
+
+            if (fileStorageService.collect(orphan.getKey(), orphan.getValue(), acquiredSince)) {
+
+                for (UploadStorage.StoredObject file : orphan.getValue()) {
+                    reclaimed += file.size();
+                }
+
+                files += orphan.getValue().size();
+
+            }
+
+            images++;
+
+        }
+
+        meterRegistry.counter("uploads.gc.reclaimed.bytes").increment(reclaimed);
+
+        meterRegistry.counter("uploads.gc.deleted.files").increment(files);
+
+        log.info("Upload GC deleted {} orphaned files, {} bytes", files, reclaimed);
+    }
+}
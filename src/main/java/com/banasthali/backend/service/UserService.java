@@ -7,7 +7,6 @@ import com.banasthali.backend.model.User;
 import com.banasthali.backend.repository.UserRepository;
 import org.springframework.web.bind.annotation.GetMapping;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -17,6 +16,8 @@ public class UserService {
     private UserRepository userRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private DriverLocationRegistry driverLocationRegistry;
 
     public User saveUser(User user) {
         return userRepository.save(user);
@@ -48,7 +49,11 @@ public class UserService {
 
         user.setDriverAvailable(available);
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+
+        driverLocationRegistry.setAvailable(user.getId(), Boolean.TRUE.equals(available));
+
+        return saved;
 
     }
     public User updateDriverLocation(
@@ -56,20 +61,37 @@ public class UserService {
             Double latitude,
             Double longitude){
 
+        // written to Mongo by the registry's next flush
+        DriverLocationRegistry.DriverLocation location =
+                driverLocationRegistry.update(user.getId(), latitude, longitude, false);
+
         user.setLatitude(latitude);
         user.setLongitude(longitude);
-        user.setLastLocationUpdate(LocalDateTime.now());
+        user.setLastLocationUpdate(location.updatedAt());
 
-        return userRepository.save(user);
+        return user;
 
     }
     @GetMapping("/bus/location")
     public List<User> getActiveBuses(){
 
-        return userRepository.findByRoleAndDriverAvailable(
+        List<User> buses = userRepository.findByRoleAndDriverAvailable(
                 "DRIVER",
                 true
         );
 
+        // Mongo may be a flush behind the registry
+        for (User bus : buses) {
+
+            driverLocationRegistry.get(bus.getId()).ifPresent(location -> {
+                bus.setLatitude(location.latitude());
+                bus.setLongitude(location.longitude());
+                bus.setLastLocationUpdate(location.updatedAt());
+            });
+
+        }
+
+        return buses;
+
     }
 }
@@ -1,5 +1,6 @@
 package com.banasthali.backend.service.impl;
 
+import java.time.Duration;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,6 +8,7 @@ import org.springframework.stereotype.Service;
 
 import com.banasthali.backend.dto.AuthResponse;
 import com.banasthali.backend.dto.driver.DriverLocationUpdateRequest;
+import com.banasthali.backend.dto.driver.DriverLocationDTO;
 import com.banasthali.backend.dto.driver.DriverLoginRequest;
 import com.banasthali.backend.dto.driver.DriverRegisterRequest;
 import com.banasthali.backend.dto.driver.DriverResponseDTO;
@@ -14,7 +16,10 @@ import com.banasthali.backend.model.Booking;
 import com.banasthali.backend.model.Role;
 import com.banasthali.backend.model.User;
 import com.banasthali.backend.repository.UserRepository;
+import com.banasthali.backend.service.DriverLocationRegistry;
 import com.banasthali.backend.service.DriverService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 @Service
 public class DriverServiceImpl implements DriverService {
@@ -22,6 +27,15 @@ public class DriverServiceImpl implements DriverService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private DriverLocationRegistry driverLocationRegistry;
+
+    // email -> driver, so location pings skip the lookup; entries expire so
+    // a deleted or renamed driver drops out within minutes
+    private final Cache<String, User> driversByEmail = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
 
 
     // LOGIN DRIVER
@@ -96,6 +110,10 @@ public class DriverServiceImpl implements DriverService {
 
         userRepository.save(user);
 
+        driversByEmail.put(email, user);
+
+        driverLocationRegistry.setAvailable(user.getId(), online);
+
         return mapToDTO(user);
 
     }
@@ -110,21 +128,32 @@ public class DriverServiceImpl implements DriverService {
 
             DriverLocationUpdateRequest request){
 
-        User user = userRepository
+        User user = driversByEmail.get(email, key -> userRepository
 
-                .findByEmail(email)
+                .findByEmail(key)
 
                 .orElseThrow(() ->
-                        new RuntimeException("Driver not found"));
+                        new RuntimeException("Driver not found")));
 
 
-        user.setLatitude(request.getLatitude());
+        // written to Mongo by the registry's next flush
+        driverLocationRegistry.update(
 
-        user.setLongitude(request.getLongitude());
+                user.getId(),
 
-        userRepository.save(user);
+                request.getLatitude(),
 
-        return mapToDTO(user);
+                request.getLongitude(),
+
+                false
+
+        );
+
+        DriverResponseDTO dto = mapToDTO(user);
+
+        dto.setLocation(new DriverLocationDTO(request.getLatitude(), request.getLongitude()));
+
+        return dto;
 
     }
 
@@ -0,0 +1,306 @@
+package com.banasthali.backend.service.routing;
+
+import com.banasthali.backend.util.GeoDistance;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Campus road network read from a JSON file:
+//
+//   { "nodes": [ { "id": "gate", "latitude": 26.40, "longitude": 75.87 }, ... ],
+//     "edges": [ { "from": "gate", "to": "library", "speedKmh": 15,
+//                  "lengthMeters": 420, "oneWay": false }, ... ] }
+//
+// speedKmh defaults to the configured speed, lengthMeters to the straight
+// line between the nodes, and oneWay to false.
+//
+// Immutable once built. Edges are kept by their target node in flat arrays
+// (compressed sparse rows), which is what a search towards a stop walks.
+public final class RoadGraph {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // incoming edges of node v are at inStart[v] until inStart[v + 1]
+    private final int[] inStart;
+    private final int[] inSource;
+    private final double[] inSeconds;
+    private final double[] inMeters;
+
+    // nodes bucketed into square cells for snapping
+    private final double cellDegrees;
+    private final Map<Long, int[]> cells;
+
+    private record NodeSpec(String id, Double latitude, Double longitude) {
+    }
+
+    private record EdgeSpec(String from, String to, Double speedKmh, Double lengthMeters, Boolean oneWay) {
+    }
+
+    private record GraphSpec(List<NodeSpec> nodes, List<EdgeSpec> edges) {
+    }
+
+    // seconds and meters from every node to one target node, along the fastest roads
+    public record ShortestPaths(double[] seconds, double[] meters) {
+    }
+
+    public record Snap(int node, double meters) {
+    }
+
+    private RoadGraph(
+            double[] latitudes,
+            double[] longitudes,
+            int[] inStart,
+            int[] inSource,
+            double[] inSeconds,
+            double[] inMeters,
+            double snapCellMeters
+    ) {
+
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.inStart = inStart;
+        this.inSource = inSource;
+        this.inSeconds = inSeconds;
+        this.inMeters = inMeters;
+        this.cellDegrees = snapCellMeters / GeoDistance.METERS_PER_DEGREE;
+        this.cells = bucket();
+    }
+
+    public static RoadGraph read(
+            Path file,
+            ObjectMapper mapper,
+            double defaultSpeedKmh,
+            double snapCellMeters
+    ) throws IOException {
+
+        GraphSpec spec = mapper.readValue(file.toFile(), GraphSpec.class);
+
+        if (spec.nodes() == null || spec.nodes().isEmpty()) {
+            throw new IllegalArgumentException("Road graph has no nodes");
+        }
+
+        int n = spec.nodes().size();
+
+        Map<String, Integer> index = new HashMap<>();
+
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+
+        for (int i = 0; i < n; i++) {
+
+            NodeSpec node = spec.nodes().get(i);
+
+            if (node.id() == null || node.latitude() == null || node.longitude() == null) {
+                throw new IllegalArgumentException("Road graph node " + i + " needs an id, latitude and longitude");
+            }
+
+            if (index.put(node.id(), i) != null) {
+                throw new IllegalArgumentException("Duplicate road graph node " + node.id());
+            }
+
+            latitudes[i] = node.latitude();
+            longitudes[i] = node.longitude();
+
+        }
+
+        // (source, target, seconds, meters) per directed edge
+        List<double[]> directed = new ArrayList<>();
+
+        List<EdgeSpec> edges = spec.edges() == null ? List.of() : spec.edges();
+
+        for (EdgeSpec edge : edges) {
+
+            Integer from = index.get(edge.from());
+            Integer to = index.get(edge.to());
+
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Road graph edge " + edge.from() + " -> " + edge.to() + " names an unknown node");
+            }
+
+            double speedKmh = edge.speedKmh() == null ? defaultSpeedKmh : edge.speedKmh();
+
+            if (speedKmh <= 0) {
+                throw new IllegalArgumentException("Road graph edge " + edge.from() + " -> " + edge.to() + " needs a positive speed");
+            }
+
+            double meters = edge.lengthMeters() != null
+                    ? edge.lengthMeters()
+                    : GeoDistance.meters(latitudes[from], longitudes[from], latitudes[to], longitudes[to]);
+
+            double seconds = meters / (speedKmh / 3.6);
+
+            directed.add(new double[] {from, to, seconds, meters});
+
+            if (!Boolean.TRUE.equals(edge.oneWay())) {
+                directed.add(new double[] {to, from, seconds, meters});
+            }
+
+        }
+
+        int m = directed.size();
+
+        int[] inStart = new int[n + 1];
+
+        for (double[] edge : directed) {
+            inStart[(int) edge[1] + 1]++;
+        }
+
+        for (int v = 0; v < n; v++) {
+            inStart[v + 1] += inStart[v];
+        }
+
+        int[] fill = inStart.clone();
+
+        int[] inSource = new int[m];
+        double[] inSeconds = new double[m];
+        double[] inMeters = new double[m];
+
+        for (double[] edge : directed) {
+
+            int slot = fill[(int) edge[1]]++;
+
+            inSource[slot] = (int) edge[0];
+            inSeconds[slot] = edge[2];
+            inMeters[slot] = edge[3];
+
+        }
+
+        return new RoadGraph(latitudes, longitudes, inStart, inSource, inSeconds, inMeters, snapCellMeters);
+    }
+
+    public int nodeCount() {
+        return latitudes.length;
+    }
+
+    public int edgeCount() {
+        return inSource.length;
+    }
+
+    // Nearest node in the point's cell and its neighbours, or null, so any
+    // node within one cell size is found. Cells are narrower in meters
+    // across longitude away from the equator, so more columns are checked.
+    public Snap snap(double latitude, double longitude) {
+
+        int row = (int) Math.floor(latitude / cellDegrees);
+        int column = (int) Math.floor(longitude / cellDegrees);
+
+        int columns = (int) Math.ceil(1 / Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude) + cellDegrees))));
+
+        int best = -1;
+        double bestMeters = Double.POSITIVE_INFINITY;
+
+        for (int dr = -1; dr <= 1; dr++) {
+
+            for (int dc = -columns; dc <= columns; dc++) {
+
+                int[] nodes = cells.get(cell(row + dr, column + dc));
+
+                if (nodes == null) {
+                    continue;
+                }
+
+                for (int node : nodes) {
+
+                    double meters = GeoDistance.meters(latitude, longitude, latitudes[node], longitudes[node]);
+
+                    if (meters < bestMeters) {
+                        best = node;
+                        bestMeters = meters;
+                    }
+
+                }
+
+            }
+
+        }
+
+        return best < 0 ? null : new Snap(best, bestMeters);
+    }
+
+    // Dijkstra from the target over incoming edges, so one run answers
+    // "how far to the target" for every node at once. Unreachable nodes
+    // stay at infinity.
+    public ShortestPaths towards(int target) {
+
+        int n = nodeCount();
+
+        double[] seconds = new double[n];
+        double[] meters = new double[n];
+
+        Arrays.fill(seconds, Double.POSITIVE_INFINITY);
+        Arrays.fill(meters, Double.POSITIVE_INFINITY);
+
+        seconds[target] = 0;
+        meters[target] = 0;
+
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[1], b[1]));
+
+        queue.add(new double[] {target, 0});
+
+        while (!queue.isEmpty()) {
+
+            double[] head = queue.poll();
+
+            int v = (int) head[0];
+
+            // stale entry, v was settled with a shorter time
+            if (head[1] > seconds[v]) {
+                continue;
+            }
+
+            for (int e = inStart[v]; e < inStart[v + 1]; e++) {
+
+                int u = inSource[e];
+
+                double time = seconds[v] + inSeconds[e];
+
+                if (time < seconds[u]) {
+
+                    seconds[u] = time;
+                    meters[u] = meters[v] + inMeters[e];
+
+                    queue.add(new double[] {u, time});
+
+                }
+
+            }
+
+        }
+
+        return new ShortestPaths(seconds, meters);
+    }
+
+    private Map<Long, int[]> bucket() {
+
+        Map<Long, List<Integer>> lists = new HashMap<>();
+
+        for (int node = 0; node < latitudes.length; node++) {
+
+            long key = cell(
+                    (int) Math.floor(latitudes[node] / cellDegrees),
+                    (int) Math.floor(longitudes[node] / cellDegrees)
+            );
+
+            lists.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+
+        }
+
+        Map<Long, int[]> buckets = new HashMap<>();
+
+        lists.forEach((key, nodes) -> buckets.put(key, nodes.stream().mapToInt(Integer::intValue).toArray()));
+
+        return buckets;
+    }
+
+    private static long cell(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
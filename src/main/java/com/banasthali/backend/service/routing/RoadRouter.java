@@ -0,0 +1,118 @@
+package com.banasthali.backend.service.routing;
+
+import com.banasthali.backend.service.PostMatrix;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Travel along campus roads instead of in a straight line. The road graph
+// comes from routing.graph-file (see RoadGraph for the format); without one
+// every route is empty and callers fall back to the straight-line estimate.
+//
+// Routes always end at a stop, so one Dijkstra run per stop, towards it,
+// answers every bus at once. Those runs are cached by the stop's road node,
+// which leaves a query with two snaps and two array reads.
+@Service
+@Slf4j
+public class RoadRouter {
+
+    private final RoadGraph graph;
+
+    private final double maxSnapMeters;
+
+    private final Cache<Integer, RoadGraph.ShortestPaths> trees;
+
+    public record Route(
+            double meters,
+            double seconds
+    ) {
+    }
+
+    public RoadRouter(
+            ObjectMapper objectMapper,
+            @Value("${routing.graph-file:}") String graphFile,
+            @Value("${routing.max-snap-meters:150}") double maxSnapMeters,
+            @Value("${routing.cache-size:256}") long cacheSize
+    ) {
+
+        this.maxSnapMeters = maxSnapMeters;
+        this.graph = load(objectMapper, graphFile, maxSnapMeters);
+        this.trees = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public boolean enabled() {
+        return graph != null;
+    }
+
+    // Empty when there is no graph, either end is further than
+    // max-snap-meters from a road node, or the roads do not connect.
+    public Optional<Route> route(
+            double fromLatitude,
+            double fromLongitude,
+            double toLatitude,
+            double toLongitude
+    ) {
+
+        if (graph == null) {
+            return Optional.empty();
+        }
+
+        RoadGraph.Snap from = graph.snap(fromLatitude, fromLongitude);
+        RoadGraph.Snap to = graph.snap(toLatitude, toLongitude);
+
+        if (from == null || to == null || from.meters() > maxSnapMeters || to.meters() > maxSnapMeters) {
+            return Optional.empty();
+        }
+
+        RoadGraph.ShortestPaths tree = trees.get(to.node(), graph::towards);
+
+        double seconds = tree.seconds()[from.node()];
+
+        if (Double.isInfinite(seconds)) {
+            return Optional.empty();
+        }
+
+        // the short legs on and off the road at the average bus speed
+        double offRoad = from.meters() + to.meters();
+
+        return Optional.of(new Route(
+                tree.meters()[from.node()] + offRoad,
+                seconds + offRoad / (PostMatrix.AVG_SPEED_KMH / 3.6)
+        ));
+    }
+
+    private static RoadGraph load(ObjectMapper objectMapper, String graphFile, double maxSnapMeters) {
+
+        if (graphFile == null || graphFile.isBlank()) {
+
+            log.info("No road graph configured, bus ETAs use straight-line distances");
+
+            return null;
+
+        }
+
+        try {
+
+            RoadGraph graph = RoadGraph.read(Path.of(graphFile), objectMapper, PostMatrix.AVG_SPEED_KMH, maxSnapMeters);
+
+            log.info("Loaded road graph {} with {} nodes and {} directed edges", graphFile, graph.nodeCount(), graph.edgeCount());
+
+            return graph;
+
+        } catch (Exception e) {
+
+            log.error("Could not load road graph {}, bus ETAs use straight-line distances", graphFile, e);
+
+            return null;
+
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.dto.ItemCard;
+import com.banasthali.backend.dto.ItemFacets;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.repository.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Category and price-bucket counts over the available items, moved by one
+// on every item event instead of being recounted per request. A periodic
+// reconciliation reloads the counts from Mongo and reports any drift.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ItemFacetIndex implements ItemIndex {
+
+    // lower bounds of the price buckets; the last one is open-ended
+    private static final List<BigDecimal> PRICE_BOUNDS = List.of(
+            BigDecimal.ZERO,
+            BigDecimal.valueOf(100),
+            BigDecimal.valueOf(500),
+            BigDecimal.valueOf(1000),
+            BigDecimal.valueOf(5000)
+    );
+
+    private final ItemRepository itemRepository;
+    private final MeterRegistry meterRegistry;
+
+    private Counts counts = new Counts();
+
+    // events seen while a reconciliation is reading from Mongo, replayed on its result
+    private List<ItemEvent> replay;
+
+    @Override
+    public synchronized void rebuild(List<Item> availableItems) {
+
+        Counts fresh = new Counts();
+
+        for (Item item : availableItems) {
+            fresh.add(item.getId(), item.getCategory(), item.getPrice());
+        }
+
+        counts = fresh;
+    }
+
+    @Override
+    public synchronized void apply(ItemEvent event) {
+
+        counts.apply(event);
+
+        if (replay != null) {
+            replay.add(event);
+        }
+    }
+
+    public synchronized ItemFacets facets() {
+
+        List<ItemFacets.CategoryCount> categories = new ArrayList<>();
+
+        counts.categoryCounts.forEach((key, count) ->
+                categories.add(new ItemFacets.CategoryCount(counts.categoryNames.get(key), count)));
+
+        categories.sort(Comparator
+                .comparingInt(ItemFacets.CategoryCount::count).reversed()
+                .thenComparing(ItemFacets.CategoryCount::category));
+
+        List<ItemFacets.PriceBucket> buckets = new ArrayList<>();
+
+        for (int i = 0; i < PRICE_BOUNDS.size(); i++) {
+
+            buckets.add(new ItemFacets.PriceBucket(
+                    PRICE_BOUNDS.get(i),
+                    i + 1 < PRICE_BOUNDS.size() ? PRICE_BOUNDS.get(i + 1) : null,
+                    counts.bucketCounts[i]
+            ));
+
+        }
+
+        return new ItemFacets(counts.entries.size(), categories, buckets);
+    }
+
+    @Scheduled(
+            initialDelayString = "${items.facets.reconcile-interval:PT15M}",
+            fixedDelayString = "${items.facets.reconcile-interval:PT15M}"
+    )
+    public void reconcile() {
+
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+
+        try {
+
+            // only id, category and price are read
+            List<ItemCard> available =
+                    itemRepository.findByAvailableTrueOrderByCreatedAtDesc(ItemCard.class);
+
+            Counts fresh = new Counts();
+
+            for (ItemCard card : available) {
+                fresh.add(card.id(), card.category(), card.price());
+            }
+
+            synchronized (this) {
+
+                for (ItemEvent event : replay) {
+                    fresh.apply(event);
+                }
+
+                int drift = counts.distanceTo(fresh);
+
+                if (drift > 0) {
+
+                    log.warn("Item facet counts drifted by {}, corrected from Mongo", drift);
+
+                    meterRegistry.counter("items.facets.drift").increment(drift);
+
+                }
+
+                counts = fresh;
+
+            }
+
+        } catch (Exception e) {
+
+            log.error("Item facet reconciliation failed", e);
+
+        } finally {
+
+            synchronized (this) {
+                replay = null;
+            }
+
+        }
+    }
+
+    private static int bucketOf(BigDecimal price) {
+
+        if (price == null) {
+            return -1;
+        }
+
+        for (int i = PRICE_BOUNDS.size() - 1; i >= 0; i--) {
+
+            if (price.compareTo(PRICE_BOUNDS.get(i)) >= 0) {
+                return i;
+            }
+
+        }
+
+        return -1;
+    }
+
+    private static String categoryKey(String category) {
+
+        return category == null || category.isBlank()
+                ? null
+                : category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Counts {
+
+        // item id -> what it was counted under, so an update or removal
+        // can decrement exactly what was added
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private final Map<String, Integer> categoryCounts = new HashMap<>();
+
+        private final Map<String, String> categoryNames = new HashMap<>();
+
+        private final int[] bucketCounts = new int[PRICE_BOUNDS.size()];
+
+        void apply(ItemEvent event) {
+
+            Item item = event.getItem();
+
+            remove(item.getId());
+
+            if (event.getType() != ItemEvent.Type.DELETED && item.isAvailable()) {
+                add(item.getId(), item.getCategory(), item.getPrice());
+            }
+        }
+
+        void add(String id, String category, BigDecimal price) {
+
+            if (id == null) {
+                return;
+            }
+
+            remove(id);
+
+            String key = categoryKey(category);
+
+            int bucket = bucketOf(price);
+
+            entries.put(id, new Entry(key, bucket));
+
+            if (key != null) {
+
+                categoryCounts.merge(key, 1, Integer::sum);
+
+                categoryNames.putIfAbsent(key, category.trim());
+
+            }
+
+            if (bucket >= 0) {
+                bucketCounts[bucket]++;
+            }
+        }
+
+        void remove(String id) {
+
+            Entry entry = entries.remove(id);
+
+            if (entry == null) {
+                return;
+            }
+
+            if (entry.category() != null
+                    && categoryCounts.merge(entry.category(), -1, Integer::sum) <= 0) {
+
+                categoryCounts.remove(entry.category());
+
+                categoryNames.remove(entry.category());
+
+            }
+
+            if (entry.bucket() >= 0) {
+                bucketCounts[entry.bucket()]--;
+            }
+        }
+
+        // total absolute difference over all counters
+        int distanceTo(Counts other) {
+
+            int distance = Math.abs(entries.size() - other.entries.size());
+
+            Map<String, Integer> union = new HashMap<>(categoryCounts);
+
+            other.categoryCounts.forEach((key, count) -> union.merge(key, -count, Integer::sum));
+
+            for (int difference : union.values()) {
+                distance += Math.abs(difference);
+            }
+
+            for (int i = 0; i < bucketCounts.length; i++) {
+                distance += Math.abs(bucketCounts[i] - other.bucketCounts[i]);
+            }
+
+            return distance;
+        }
+    }
+
+    private record Entry(String category, int bucket) {
+    }
+}
@@ -0,0 +1,339 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Typo-tolerant lookup for misspelled queries ("cycel", "calcy").
+//
+// Trigrams index the vocabulary of titles and descriptions rather than the
+// items, so a query word only has to be compared with the few thousand
+// distinct words that share enough trigrams with it. Those candidates are then
+// re-ranked by edit distance (with adjacent transpositions), also against the
+// word's prefix so "calcy" still reaches "calculator".
+@Component
+public class ItemFuzzyIndex implements ItemIndex {
+
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    // share of the query word's trigrams a candidate must have
+    private static final double MIN_TRIGRAM_OVERLAP = 0.35;
+    private static final int MAX_CANDIDATES = 200;
+
+    // a prefix match is slightly worse than a whole-word match
+    private static final double PREFIX_PENALTY = 0.5;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // trigram -> words containing it
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+
+    // word -> (item id -> field weight)
+    private final Map<String, Map<String, Double>> words = new HashMap<>();
+
+    private final Map<String, IndexedItem> items = new HashMap<>();
+
+    @Override
+    public void rebuild(List<Item> availableItems) {
+
+        lock.writeLock().lock();
+
+        try {
+
+            trigrams.clear();
+            words.clear();
+            items.clear();
+
+            for (Item item : availableItems) {
+                add(item);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void apply(ItemEvent event) {
+
+        Item item = event.getItem();
+
+        lock.writeLock().lock();
+
+        try {
+
+            remove(item.getId());
+
+            if (event.getType() != ItemEvent.Type.DELETED && item.isAvailable()) {
+                add(item);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Available items matching the query words within a few edits, best first.
+    public List<Item> search(String query) {
+
+        Set<String> queryWords = new LinkedHashSet<>(TextAnalyzer.tokenize(query));
+
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+
+        try {
+
+            Map<String, Double> scores = new HashMap<>();
+
+            for (String queryWord : queryWords) {
+
+                Map<String, Double> wordScores = new HashMap<>();
+
+                for (Map.Entry<String, Double> match : similarWords(queryWord).entrySet()) {
+
+                    for (Map.Entry<String, Double> posting : words.get(match.getKey()).entrySet()) {
+                        wordScores.merge(posting.getKey(), match.getValue() * posting.getValue(), Math::max);
+                    }
+
+                }
+
+                wordScores.forEach((id, score) -> scores.merge(id, score, Double::sum));
+
+            }
+
+            List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+
+            ranked.sort(
+                    Map.Entry.<String, Double>comparingByValue().reversed()
+                            .thenComparing(entry -> items.get(entry.getKey()).createdAt(),
+                                    Comparator.nullsLast(Comparator.reverseOrder()))
+            );
+
+            List<Item> result = new ArrayList<>(ranked.size());
+
+            for (Map.Entry<String, Double> entry : ranked) {
+                result.add(items.get(entry.getKey()).item());
+            }
+
+            return result;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // indexed word -> similarity in (0, 1]
+    private Map<String, Double> similarWords(String queryWord) {
+
+        Map<String, Double> similar = new HashMap<>();
+
+        if (words.containsKey(queryWord)) {
+            similar.put(queryWord, 1.0);
+        }
+
+        Set<String> queryTrigrams = trigramsOf(queryWord);
+
+        Map<String, Integer> overlap = new HashMap<>();
+
+        for (String trigram : queryTrigrams) {
+
+            for (String word : trigrams.getOrDefault(trigram, Set.of())) {
+                overlap.merge(word, 1, Integer::sum);
+            }
+
+        }
+
+        int minOverlap = Math.max(1, (int) Math.ceil(queryTrigrams.size() * MIN_TRIGRAM_OVERLAP));
+
+        int maxEdits = maxEdits(queryWord.length());
+
+        overlap.entrySet().stream()
+                .filter(entry -> entry.getValue() >= minOverlap)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(MAX_CANDIDATES)
+                .forEach(entry -> {
+
+                    double distance = distance(queryWord, entry.getKey());
+
+                    if (distance <= maxEdits) {
+                        similar.merge(entry.getKey(), 1.0 - distance / (queryWord.length() + 1), Math::max);
+                    }
+
+                });
+
+        return similar;
+    }
+
+    private static int maxEdits(int length) {
+
+        if (length <= 4) {
+            return 1;
+        }
+
+        return length <= 8 ? 2 : 3;
+    }
+
+    // Edit distance to the whole word, or to a prefix of about the query's
+    // length plus a small penalty, whichever is smaller.
+    static double distance(String query, String word) {
+
+        double best = editDistance(query, word);
+
+        for (int length = query.length() - 1; length <= query.length() + 1; length++) {
+
+            if (length > 0 && length < word.length()) {
+                best = Math.min(best, editDistance(query, word.substring(0, length)) + PREFIX_PENALTY);
+            }
+
+        }
+
+        return best;
+    }
+
+    // Optimal string alignment distance: insertions, deletions,
+    // substitutions and adjacent transpositions.
+    static int editDistance(String a, String b) {
+
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+
+            for (int j = 1; j <= b.length(); j++) {
+
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+
+                if (i > 1 && j > 1
+                        && a.charAt(i - 1) == b.charAt(j - 2)
+                        && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+
+            }
+
+        }
+
+        return d[a.length()][b.length()];
+    }
+
+    // Trigrams with a start marker only, so a word's prefix shares
+    // all of its trigrams with the word.
+    private static Set<String> trigramsOf(String word) {
+
+        String padded = "$$" + word;
+
+        Set<String> result = new HashSet<>();
+
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+
+        return result;
+    }
+
+    private void add(Item item) {
+
+        if (item.getId() == null) {
+            return;
+        }
+
+        Map<String, Double> itemWords = new HashMap<>();
+
+        for (String word : TextAnalyzer.tokenize(item.getDescription())) {
+            itemWords.merge(word, DESCRIPTION_WEIGHT, Math::max);
+        }
+
+        for (String word : TextAnalyzer.tokenize(item.getTitle())) {
+            itemWords.merge(word, TITLE_WEIGHT, Math::max);
+        }
+
+        for (Map.Entry<String, Double> entry : itemWords.entrySet()) {
+
+            Map<String, Double> postings = words.get(entry.getKey());
+
+            if (postings == null) {
+
+                postings = new HashMap<>();
+
+                words.put(entry.getKey(), postings);
+
+                for (String trigram : trigramsOf(entry.getKey())) {
+                    trigrams.computeIfAbsent(trigram, t -> new HashSet<>()).add(entry.getKey());
+                }
+
+            }
+
+            postings.put(item.getId(), entry.getValue());
+
+        }
+
+        items.put(item.getId(), new IndexedItem(item, itemWords.keySet()));
+    }
+
+    private void remove(String id) {
+
+        IndexedItem existing = items.remove(id);
+
+        if (existing == null) {
+            return;
+        }
+
+        for (String word : existing.words()) {
+
+            Map<String, Double> postings = words.get(word);
+
+            postings.remove(id);
+
+            if (postings.isEmpty()) {
+
+                words.remove(word);
+
+                for (String trigram : trigramsOf(word)) {
+
+                    Set<String> trigramWords = trigrams.get(trigram);
+
+                    trigramWords.remove(word);
+
+                    if (trigramWords.isEmpty()) {
+                        trigrams.remove(trigram);
+                    }
+
+                }
+
+            }
+
+        }
+    }
+
+    private record IndexedItem(Item item, Set<String> words) {
+
+        LocalDateTime createdAt() {
+            return item.getCreatedAt();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+
+import java.util.List;
+
+// An in-memory view over the available items, kept in sync by ItemIndexer.
+public interface ItemIndex {
+
+    // Replace the whole index with the given available items.
+    void rebuild(List<Item> availableItems);
+
+    // Apply a single saved change.
+    void apply(ItemEvent event);
+}
@@ -0,0 +1,127 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Loads the available items once at startup and feeds every ItemIndex,
+// then forwards each ItemEvent so the indexes never go back to Mongo.
+//
+// The server already takes writes while the items are read, and a rebuild
+// replaces whatever the indexes held, so events seen during the load are
+// kept and replayed on top of it (every ItemIndex.apply is an upsert or a
+// removal by id, so replaying an event the load already saw is harmless).
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ItemIndexer {
+
+    private final ItemRepository itemRepository;
+    private final List<ItemIndex> indexes;
+
+    private volatile boolean ready;
+
+    // events seen while the items are read from Mongo, replayed on the rebuilt indexes
+    private List<ItemEvent> replay;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+
+        long start = System.currentTimeMillis();
+
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+
+        List<Item> items;
+
+        int replayed;
+
+        try {
+
+            items = itemRepository.findByAvailableTrueOrderByCreatedAtDesc();
+
+            synchronized (this) {
+
+                for (ItemIndex index : indexes) {
+
+                    index.rebuild(items);
+
+                }
+
+                for (ItemEvent event : replay) {
+
+                    applyToAll(event);
+
+                }
+
+                replayed = replay.size();
+
+                ready = true;
+
+            }
+
+        } catch (Exception e) {
+
+            log.error("Could not load items for the in-memory indexes, falling back to Mongo queries", e);
+
+            return;
+
+        } finally {
+
+            synchronized (this) {
+                replay = null;
+            }
+
+        }
+
+        log.info(
+                "Indexed {} available items into {} indexes in {} ms, replayed {} events",
+                items.size(),
+                indexes.size(),
+                System.currentTimeMillis() - start,
+                replayed
+        );
+
+    }
+
+    @EventListener
+    public synchronized void onItemEvent(ItemEvent event) {
+
+        if (replay != null) {
+            replay.add(event);
+        }
+
+        applyToAll(event);
+    }
+
+    private void applyToAll(ItemEvent event) {
+
+        for (ItemIndex index : indexes) {
+
+            try {
+
+                index.apply(event);
+
+            } catch (Exception e) {
+
+                log.error("Index {} failed to apply {}", index.getClass().getSimpleName(), event, e);
+
+            }
+
+        }
+
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+}
@@ -0,0 +1,277 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over title, category and description of available items,
+// ranked with BM25. Field weights are folded into the term frequency
+// (a simplified BM25F) so a title hit outranks a description hit.
+@Component
+public class ItemSearchIndex implements ItemIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final double TITLE_WEIGHT = 3.0;
+    private static final double CATEGORY_WEIGHT = 2.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    // "calc" should still find "calculator", like the old regex did,
+    // but an exact word match ranks higher.
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 32;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (item id -> weighted term frequency)
+    private final NavigableMap<String, Map<String, Double>> postings = new TreeMap<>();
+
+    private final Map<String, IndexedItem> items = new HashMap<>();
+
+    private double totalLength;
+
+    @Override
+    public void rebuild(List<Item> availableItems) {
+
+        lock.writeLock().lock();
+
+        try {
+
+            postings.clear();
+            items.clear();
+            totalLength = 0;
+
+            for (Item item : availableItems) {
+                add(item);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void apply(ItemEvent event) {
+
+        Item item = event.getItem();
+
+        lock.writeLock().lock();
+
+        try {
+
+            remove(item.getId());
+
+            if (event.getType() != ItemEvent.Type.DELETED && item.isAvailable()) {
+                add(item);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the matching available items, best match first.
+    public List<Item> search(String query) {
+
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(TextAnalyzer.tokenize(query)));
+
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+
+        try {
+
+            if (items.isEmpty()) {
+                return List.of();
+            }
+
+            double averageLength = totalLength / items.size();
+
+            Map<String, Double> scores = new HashMap<>();
+
+            for (String queryTerm : queryTerms) {
+
+                // best contribution of this query term per item, so an item
+                // with many words sharing the prefix is not over-counted
+                Map<String, Double> termScores = new HashMap<>();
+
+                for (Map.Entry<String, Map<String, Double>> entry : expand(queryTerm).entrySet()) {
+
+                    double matchWeight = entry.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_WEIGHT;
+
+                    Map<String, Double> termPostings = entry.getValue();
+
+                    double idf = idf(termPostings.size());
+
+                    for (Map.Entry<String, Double> posting : termPostings.entrySet()) {
+
+                        double tf = posting.getValue();
+
+                        double length = items.get(posting.getKey()).length();
+
+                        double score = matchWeight * idf * (tf * (K1 + 1))
+                                / (tf + K1 * (1 - B + B * length / averageLength));
+
+                        termScores.merge(posting.getKey(), score, Math::max);
+
+                    }
+
+                }
+
+                termScores.forEach((id, score) -> scores.merge(id, score, Double::sum));
+
+            }
+
+            List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+
+            ranked.sort(
+                    Map.Entry.<String, Double>comparingByValue().reversed()
+                            .thenComparing(entry -> items.get(entry.getKey()).createdAt(),
+                                    Comparator.nullsLast(Comparator.reverseOrder()))
+            );
+
+            List<Item> result = new ArrayList<>(ranked.size());
+
+            for (Map.Entry<String, Double> entry : ranked) {
+                result.add(items.get(entry.getKey()).item());
+            }
+
+            return result;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+
+        lock.readLock().lock();
+
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Map<String, Double>> expand(String queryTerm) {
+
+        Map<String, Map<String, Double>> matches = new HashMap<>();
+
+        Map<String, Double> exact = postings.get(queryTerm);
+
+        if (exact != null) {
+            matches.put(queryTerm, exact);
+        }
+
+        if (queryTerm.length() < MIN_PREFIX_LENGTH) {
+            return matches;
+        }
+
+        for (Map.Entry<String, Map<String, Double>> entry
+                : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, true).entrySet()) {
+
+            if (matches.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+
+            matches.put(entry.getKey(), entry.getValue());
+
+        }
+
+        return matches;
+    }
+
+    private double idf(int documentFrequency) {
+
+        return Math.log(1 + (items.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+    }
+
+    private void add(Item item) {
+
+        if (item.getId() == null) {
+            return;
+        }
+
+        Map<String, Double> frequencies = new HashMap<>();
+
+        addField(frequencies, item.getTitle(), TITLE_WEIGHT);
+        addField(frequencies, item.getCategory(), CATEGORY_WEIGHT);
+        addField(frequencies, item.getDescription(), DESCRIPTION_WEIGHT);
+
+        double length = 0;
+
+        for (Map.Entry<String, Double> entry : frequencies.entrySet()) {
+
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                    .put(item.getId(), entry.getValue());
+
+            length += entry.getValue();
+
+        }
+
+        items.put(item.getId(), new IndexedItem(item, length, frequencies.keySet()));
+
+        totalLength += length;
+    }
+
+    private void remove(String id) {
+
+        IndexedItem existing = items.remove(id);
+
+        if (existing == null) {
+            return;
+        }
+
+        for (String term : existing.terms()) {
+
+            Map<String, Double> termPostings = postings.get(term);
+
+            if (termPostings != null) {
+
+                termPostings.remove(id);
+
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+
+            }
+
+        }
+
+        totalLength -= existing.length();
+    }
+
+    private static void addField(Map<String, Double> frequencies, String text, double weight) {
+
+        for (String token : TextAnalyzer.tokenize(text)) {
+            frequencies.merge(token, weight, Double::sum);
+        }
+
+    }
+
+    private record IndexedItem(Item item, double length, Set<String> terms) {
+
+        LocalDateTime createdAt() {
+            return item.getCreatedAt();
+        }
+    }
+}
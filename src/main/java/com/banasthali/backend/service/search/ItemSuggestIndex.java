@@ -0,0 +1,375 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.dto.ItemSuggestion;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Prefix trie over normalized titles and categories of available items.
+// Every word start of a title is a key, so "coat" completes "white lab coat".
+// Completions are ranked by their newest listing; each node caches its
+// top entries until a write touches the path below it.
+@Component
+public class ItemSuggestIndex implements ItemIndex {
+
+    public static final int MAX_SUGGESTIONS = 20;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Node root = new Node();
+
+    private final Map<Phrase, PhraseStats> phrases = new HashMap<>();
+
+    // item id -> phrases it contributes, for removal
+    private final Map<String, List<Phrase>> itemPhrases = new HashMap<>();
+
+    @Override
+    public void rebuild(List<Item> availableItems) {
+
+        lock.writeLock().lock();
+
+        try {
+
+            root.children.clear();
+            root.phrases.clear();
+            root.top = null;
+            phrases.clear();
+            itemPhrases.clear();
+
+            for (Item item : availableItems) {
+                add(item);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void apply(ItemEvent event) {
+
+        Item item = event.getItem();
+
+        lock.writeLock().lock();
+
+        try {
+
+            remove(item.getId());
+
+            if (event.getType() != ItemEvent.Type.DELETED && item.isAvailable()) {
+                add(item);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ItemSuggestion> suggest(String prefix, int limit) {
+
+        String key = TextAnalyzer.normalize(prefix);
+
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+
+        try {
+
+            Node node = root;
+
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+
+            if (node == null) {
+                return List.of();
+            }
+
+            List<Phrase> top = node.top;
+
+            if (top == null) {
+                top = collectTop(node);
+                node.top = top;
+            }
+
+            List<ItemSuggestion> suggestions = new ArrayList<>();
+
+            for (Phrase phrase : top.subList(0, Math.min(limit, top.size()))) {
+                suggestions.add(new ItemSuggestion(phrase.text(), phrase.kind(), phrases.get(phrase).listings()));
+            }
+
+            return suggestions;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Readers may race to fill the same node cache; they compute the same list.
+    private List<Phrase> collectTop(Node node) {
+
+        Set<Phrase> found = new HashSet<>();
+
+        List<Node> stack = new ArrayList<>();
+
+        stack.add(node);
+
+        while (!stack.isEmpty()) {
+
+            Node current = stack.remove(stack.size() - 1);
+
+            found.addAll(current.phrases);
+
+            stack.addAll(current.children.values());
+
+        }
+
+        return found.stream()
+                .sorted(Comparator
+                        .comparingLong((Phrase phrase) -> phrases.get(phrase).newest())
+                        .reversed()
+                        .thenComparing(Phrase::text))
+                .limit(MAX_SUGGESTIONS)
+                .toList();
+    }
+
+    private void add(Item item) {
+
+        if (item.getId() == null) {
+            return;
+        }
+
+        long createdAt = item.getCreatedAt() == null
+                ? 0
+                : item.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        Set<Phrase> contributed = new LinkedHashSet<>();
+
+        String title = TextAnalyzer.normalize(item.getTitle());
+
+        if (!title.isEmpty()) {
+            contributed.add(new Phrase(title, ItemSuggestion.Kind.TITLE));
+        }
+
+        String category = TextAnalyzer.normalize(item.getCategory());
+
+        if (!category.isEmpty()) {
+            contributed.add(new Phrase(category, ItemSuggestion.Kind.CATEGORY));
+        }
+
+        for (Phrase phrase : contributed) {
+
+            PhraseStats stats = phrases.get(phrase);
+
+            if (stats == null) {
+
+                stats = new PhraseStats();
+
+                phrases.put(phrase, stats);
+
+                for (String key : keys(phrase)) {
+                    insertKey(key, phrase);
+                }
+
+            } else {
+
+                invalidate(phrase);
+
+            }
+
+            stats.put(item.getId(), createdAt);
+
+        }
+
+        itemPhrases.put(item.getId(), new ArrayList<>(contributed));
+    }
+
+    private void remove(String id) {
+
+        List<Phrase> contributed = itemPhrases.remove(id);
+
+        if (contributed == null) {
+            return;
+        }
+
+        for (Phrase phrase : contributed) {
+
+            PhraseStats stats = phrases.get(phrase);
+
+            stats.remove(id);
+
+            if (stats.isEmpty()) {
+
+                phrases.remove(phrase);
+
+                for (String key : keys(phrase)) {
+                    removeKey(key, phrase);
+                }
+
+            } else {
+
+                invalidate(phrase);
+
+            }
+
+        }
+    }
+
+    private static List<String> keys(Phrase phrase) {
+
+        List<String> keys = new ArrayList<>();
+
+        keys.add(phrase.text());
+
+        if (phrase.kind() == ItemSuggestion.Kind.TITLE) {
+
+            for (int i = 0; i < phrase.text().length(); i++) {
+
+                if (phrase.text().charAt(i) == ' ') {
+                    keys.add(phrase.text().substring(i + 1));
+                }
+
+            }
+
+        }
+
+        return keys;
+    }
+
+    private void insertKey(String key, Phrase phrase) {
+
+        Node node = root;
+
+        node.top = null;
+
+        for (int i = 0; i < key.length(); i++) {
+
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+
+            node.top = null;
+
+        }
+
+        node.phrases.add(phrase);
+    }
+
+    private void removeKey(String key, Phrase phrase) {
+
+        List<Node> path = new ArrayList<>();
+
+        Node node = root;
+
+        path.add(node);
+
+        for (int i = 0; i < key.length() && node != null; i++) {
+
+            node = node.children.get(key.charAt(i));
+
+            path.add(node);
+
+        }
+
+        if (node == null) {
+            return;
+        }
+
+        node.phrases.remove(phrase);
+
+        for (int i = path.size() - 1; i >= 0; i--) {
+
+            Node current = path.get(i);
+
+            current.top = null;
+
+            // prune empty branches
+            if (i > 0 && current.phrases.isEmpty() && current.children.isEmpty()) {
+                path.get(i - 1).children.remove(key.charAt(i - 1));
+            }
+
+        }
+    }
+
+    // The phrase's ranking changed, so every cached list above its keys is stale.
+    private void invalidate(Phrase phrase) {
+
+        for (String key : keys(phrase)) {
+
+            Node node = root;
+
+            node.top = null;
+
+            for (int i = 0; i < key.length() && node != null; i++) {
+
+                node = node.children.get(key.charAt(i));
+
+                if (node != null) {
+                    node.top = null;
+                }
+
+            }
+
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+
+        private final Set<Phrase> phrases = new HashSet<>(2);
+
+        private volatile List<Phrase> top;
+    }
+
+    private record Phrase(String text, ItemSuggestion.Kind kind) {
+    }
+
+    private static final class PhraseStats {
+
+        // item id -> createdAt in epoch millis
+        private final Map<String, Long> createdAtByItem = new HashMap<>();
+
+        private long newest;
+
+        void put(String itemId, long createdAt) {
+
+            createdAtByItem.put(itemId, createdAt);
+
+            newest = Math.max(newest, createdAt);
+        }
+
+        void remove(String itemId) {
+
+            Long createdAt = createdAtByItem.remove(itemId);
+
+            if (createdAt != null && createdAt == newest) {
+                newest = createdAtByItem.values().stream().mapToLong(Long::longValue).max().orElse(0);
+            }
+        }
+
+        boolean isEmpty() {
+            return createdAtByItem.isEmpty();
+        }
+
+        int listings() {
+            return createdAtByItem.size();
+        }
+
+        long newest() {
+            return newest;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.SavedSearch;
+import com.banasthali.backend.repository.SavedSearchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Percolator for saved searches: the searches are indexed by their words
+// (word -> saved searches containing it) and each new item is run against
+// them, so matching costs the item's words, not the number of subscriptions.
+//
+// A search matches when every one of its words is a word of the item's
+// title, description or category, or the start of one ("calc" matches
+// "calculator"), and the optional category and price limit hold. Word starts
+// are probed from MIN_PREFIX letters up, so a one-letter word only matches a
+// whole one-letter word ("c" does not match "cycle").
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SavedSearchIndex {
+
+    // shortest word start probed for prefix matches
+    private static final int MIN_PREFIX = 2;
+
+    private final SavedSearchRepository savedSearchRepository;
+
+    @Value("${mongo.preload.saved-searches:true}")
+    private boolean preload;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // word -> ids of the saved searches containing it
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+
+        if (!preload) {
+            return;
+        }
+
+        List<SavedSearch> savedSearches;
+
+        try {
+
+            savedSearches = savedSearchRepository.findAll();
+
+        } catch (Exception e) {
+
+            log.error("Could not load saved searches, new items will not be matched", e);
+
+            return;
+
+        }
+
+        lock.writeLock().lock();
+
+        try {
+
+            postings.clear();
+            subscriptions.clear();
+
+            for (SavedSearch savedSearch : savedSearches) {
+                add(savedSearch);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Indexed {} saved searches", savedSearches.size());
+    }
+
+    public void put(SavedSearch savedSearch) {
+
+        lock.writeLock().lock();
+
+        try {
+
+            remove(savedSearch.getId());
+
+            add(savedSearch);
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(String id) {
+
+        lock.writeLock().lock();
+
+        try {
+
+            remove(id);
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SavedSearch> match(Item item) {
+
+        // the item's words and their starts
+        Set<String> probes = new HashSet<>();
+
+        List<String> words = new ArrayList<>(TextAnalyzer.tokenize(item.getTitle()));
+
+        words.addAll(TextAnalyzer.tokenize(item.getDescription()));
+        words.addAll(TextAnalyzer.tokenize(item.getCategory()));
+
+        for (String word : words) {
+
+            for (int length = Math.min(MIN_PREFIX, word.length()); length <= word.length(); length++) {
+                probes.add(word.substring(0, length));
+            }
+
+        }
+
+        lock.readLock().lock();
+
+        try {
+
+            // saved search id -> how many of its words were found
+            Map<String, Integer> found = new HashMap<>();
+
+            for (String probe : probes) {
+
+                for (String id : postings.getOrDefault(probe, Set.of())) {
+                    found.merge(id, 1, Integer::sum);
+                }
+
+            }
+
+            List<SavedSearch> matches = new ArrayList<>();
+
+            found.forEach((id, count) -> {
+
+                Subscription subscription = subscriptions.get(id);
+
+                if (count == subscription.words().size() && subscription.accepts(item)) {
+                    matches.add(subscription.savedSearch());
+                }
+
+            });
+
+            return matches;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(SavedSearch savedSearch) {
+
+        Set<String> words = new LinkedHashSet<>(TextAnalyzer.tokenize(savedSearch.getQuery()));
+
+        // a query of only stop words would match everything
+        if (savedSearch.getId() == null || words.isEmpty()) {
+            return;
+        }
+
+        subscriptions.put(savedSearch.getId(), new Subscription(savedSearch, words));
+
+        for (String word : words) {
+            postings.computeIfAbsent(word, w -> new HashSet<>()).add(savedSearch.getId());
+        }
+    }
+
+    private void remove(String id) {
+
+        Subscription existing = subscriptions.remove(id);
+
+        if (existing == null) {
+            return;
+        }
+
+        for (String word : existing.words()) {
+
+            Set<String> ids = postings.get(word);
+
+            ids.remove(id);
+
+            if (ids.isEmpty()) {
+                postings.remove(word);
+            }
+
+        }
+    }
+
+    private record Subscription(SavedSearch savedSearch, Set<String> words) {
+
+        boolean accepts(Item item) {
+
+            String category = savedSearch.getCategory();
+
+            if (category != null && !category.isBlank()
+                    && (item.getCategory() == null
+                    || !category.trim().toLowerCase(Locale.ROOT)
+                    .equals(item.getCategory().trim().toLowerCase(Locale.ROOT)))) {
+                return false;
+            }
+
+            return savedSearch.getMaxPrice() == null
+                    || (item.getPrice() != null && item.getPrice().compareTo(savedSearch.getMaxPrice()) <= 0);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.banasthali.backend.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Shared tokenizer for the item indexes: lower-cases and splits on anything
+// that is not a letter or digit, dropping a few English filler words.
+public final class TextAnalyzer {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "for", "from", "in",
+            "is", "it", "of", "on", "or", "the", "to", "with"
+    );
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> tokenize(String text) {
+
+        List<String> tokens = new ArrayList<>();
+
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+
+        }
+
+        return tokens;
+    }
+
+    // Lower-cased words joined by single spaces, stop words kept.
+    public static String normalize(String text) {
+
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+
+        StringBuilder normalized = new StringBuilder();
+
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+
+            if (!token.isEmpty()) {
+
+                if (normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+
+                normalized.append(token);
+
+            }
+
+        }
+
+        return normalized.toString();
+    }
+}
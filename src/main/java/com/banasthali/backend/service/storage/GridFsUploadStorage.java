@@ -0,0 +1,346 @@
+package com.banasthali.backend.service.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+// Files in MongoDB GridFS (fs.files / fs.chunks), shared by all nodes.
+// Reads and writes stream one chunk (255 KB) at a time.
+//
+// With file.gridfs.cache-dir set, files are also copied to local disk on
+// first read and served from there, up to file.gridfs.cache-size; this is
+// what lets the upload controller use sendfile. Cached copies never go
+// stale in practice: names are content hashes, and a variant rewritten on
+// this node is evicted by put().
+//
+// Downloads run outside the cache's compute, so a slow one does not hold up
+// reads of other names; two readers of one name may both download it, and
+// the second copy is dropped. An evicted copy is not deleted at once: the
+// upload controller may have handed its path to Tomcat's sendfile, which
+// opens it only after the request returns. It is deleted after
+// file.gridfs.cache-retire-delay, by which time any such transfer has the
+// file open.
+@Component
+@ConditionalOnProperty(name = "file.storage", havingValue = "gridfs")
+@Slf4j
+public class GridFsUploadStorage implements UploadStorage {
+
+    private static final String CACHE_PREFIX = "blob-";
+    private static final String CACHE_SUFFIX = ".cache";
+
+    private final GridFsTemplate gridFsTemplate;
+
+    private final Path cacheDir;
+
+    private final Cache<String, CachedFile> cache;
+
+    private final long retireDelayNanos;
+
+    // evicted copies in eviction order, waiting for the retire delay
+    private final Queue<RetiredFile> retired = new ConcurrentLinkedQueue<>();
+
+    // bumped by evict(), so a download that raced a put() is not kept
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record CachedFile(Path path, long size) {
+    }
+
+    private record RetiredFile(Path path, long deleteAtNanos) {
+    }
+
+    public GridFsUploadStorage(
+            GridFsTemplate gridFsTemplate,
+            @Value("${file.gridfs.cache-dir:}") String cacheDir,
+            @Value("${file.gridfs.cache-size:1GB}") DataSize cacheSize,
+            @Value("${file.gridfs.cache-retire-delay:PT1M}") Duration retireDelay
+    ) throws IOException {
+
+        this.gridFsTemplate = gridFsTemplate;
+        this.retireDelayNanos = retireDelay.toNanos();
+
+        if (cacheDir.isBlank()) {
+
+            this.cacheDir = null;
+            this.cache = null;
+
+            return;
+
+        }
+
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+
+        Files.createDirectories(this.cacheDir);
+
+        // copies left by a previous run are not tracked, so they go
+        clearCacheDir();
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheSize.toKilobytes())
+                .weigher((String name, CachedFile file) -> (int) Math.min(Integer.MAX_VALUE, file.size() / 1024 + 1))
+                // the listener only queues the copy, so it runs on the evicting thread
+                .executor(Runnable::run)
+                .removalListener((String name, CachedFile file, RemovalCause cause) -> {
+                    if (file != null) {
+                        retired.add(new RetiredFile(file.path(), System.nanoTime() + retireDelayNanos));
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile("upload-", ".tmp");
+    }
+
+    @Override
+    public void put(String name, Path source, String contentType) throws IOException {
+
+        ObjectId id;
+
+        try (InputStream in = Files.newInputStream(source)) {
+            id = gridFsTemplate.store(in, name, contentType);
+        }
+
+        // readers see the old file until the new one is complete
+        gridFsTemplate.delete(Query.query(whereFilename().is(name).and("_id").ne(id)));
+
+        evict(name);
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return latest(name) != null;
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String name) {
+
+        GridFSFile file = latest(name);
+
+        return file == null ? Optional.empty() : Optional.of(toObject(file));
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+
+        Optional<Path> local = localPath(name);
+
+        if (local.isPresent()) {
+            return Files.newInputStream(local.get());
+        }
+
+        GridFSFile file = latest(name);
+
+        if (file == null) {
+            throw new NoSuchFileException(name);
+        }
+
+        return gridFsTemplate.getResource(file).getInputStream();
+    }
+
+    @Override
+    public Optional<Path> localPath(String name) throws IOException {
+
+        if (cache == null) {
+            return Optional.empty();
+        }
+
+        CachedFile cached = cache.getIfPresent(name);
+
+        if (cached == null) {
+
+            long generation = evictions.get();
+
+            CachedFile downloaded = download(name);
+
+            if (downloaded == null) {
+                return Optional.empty();
+            }
+
+            cached = cache.asMap().putIfAbsent(name, downloaded);
+
+            if (cached != null) {
+
+                // another reader got there first
+                deleteQuietly(downloaded.path());
+
+            } else {
+
+                cached = downloaded;
+
+                // may be the old content; served this once, then retired
+                if (evictions.get() != generation) {
+                    cache.asMap().remove(name, downloaded);
+                }
+
+            }
+
+        }
+
+        // removed behind our back (e.g. a tmp cleaner); fetched again next time
+        if (!Files.isRegularFile(cached.path())) {
+
+            cache.invalidate(name);
+
+            return Optional.empty();
+
+        }
+
+        return Optional.of(cached.path());
+    }
+
+    @Override
+    public Stream<StoredObject> list(String prefix) {
+
+        Query query = Query.query(whereFilename().regex("^" + escape(prefix)));
+
+        MongoCursor<GridFSFile> cursor = gridFsTemplate.find(query).iterator();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                .map(GridFsUploadStorage::toObject)
+                .onClose(cursor::close);
+    }
+
+    @Override
+    public void delete(String name) {
+
+        gridFsTemplate.delete(Query.query(whereFilename().is(name)));
+
+        evict(name);
+    }
+
+    // newest first: while put() replaces a file both versions exist briefly
+    private GridFSFile latest(String name) {
+
+        Query query = Query.query(whereFilename().is(name))
+                .with(Sort.by(Sort.Direction.DESC, "uploadDate"));
+
+        return gridFsTemplate.find(query).first();
+    }
+
+    @Scheduled(fixedDelayString = "${file.gridfs.cache-retire-delay:PT1M}")
+    public void deleteRetired() {
+
+        long now = System.nanoTime();
+
+        RetiredFile file;
+
+        while ((file = retired.peek()) != null && file.deleteAtNanos() - now <= 0) {
+
+            retired.remove();
+
+            deleteQuietly(file.path());
+
+        }
+    }
+
+    // a new copy in the cache directory; null if there is no such file
+    private CachedFile download(String name) throws IOException {
+
+        GridFSFile file = latest(name);
+
+        if (file == null) {
+            return null;
+        }
+
+        Path target = Files.createTempFile(cacheDir, CACHE_PREFIX, CACHE_SUFFIX);
+
+        try (InputStream in = gridFsTemplate.getResource(file).getInputStream()) {
+
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+
+        } catch (IOException | RuntimeException e) {
+
+            deleteQuietly(target);
+
+            throw e;
+
+        }
+
+        return new CachedFile(target, file.getLength());
+    }
+
+    private void evict(String name) {
+
+        if (cache != null) {
+
+            evictions.incrementAndGet();
+
+            cache.invalidate(name);
+
+        }
+    }
+
+    private void clearCacheDir() throws IOException {
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, CACHE_PREFIX + "*" + CACHE_SUFFIX)) {
+
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+
+        try {
+
+            Files.deleteIfExists(path);
+
+        } catch (IOException e) {
+
+            log.warn("Could not delete cached upload {}", path, e);
+
+        }
+    }
+
+    // a plain prefix, so the filename index bounds the scan
+    private static String escape(String prefix) {
+        return prefix.replaceAll("[^A-Za-z0-9_-]", "\\\\$0");
+    }
+
+    private static StoredObject toObject(GridFSFile file) {
+
+        return new StoredObject(
+                file.getFilename(),
+                file.getLength(),
+                file.getUploadDate().getTime(),
+                MediaTypeFactory.getMediaType(file.getFilename()).orElse(MediaType.APPLICATION_OCTET_STREAM).toString()
+        );
+    }
+}
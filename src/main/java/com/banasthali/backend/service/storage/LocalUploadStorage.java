@@ -0,0 +1,145 @@
+package com.banasthali.backend.service.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Files in file.upload-dir. Temp files are created in the same directory
+// (dot-prefixed, never served) so put() is an atomic rename.
+@Component
+@ConditionalOnProperty(name = "file.storage", havingValue = "local", matchIfMissing = true)
+public class LocalUploadStorage implements UploadStorage {
+
+    private final Path dir;
+
+    public LocalUploadStorage(
+            @Value("${file.upload-dir:src/main/resources/static/uploads}") String uploadDir
+    ) {
+        this.dir = Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Path createTempFile() throws IOException {
+
+        Files.createDirectories(dir);
+
+        return Files.createTempFile(dir, ".upload-", ".tmp");
+    }
+
+    @Override
+    public void put(String name, Path source, String contentType) throws IOException {
+        Files.move(source, resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return Files.isRegularFile(resolve(name));
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String name) throws IOException {
+
+        Path path = resolve(name);
+
+        BasicFileAttributes attributes;
+
+        try {
+
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+        } catch (NoSuchFileException e) {
+
+            return Optional.empty();
+
+        }
+
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(toObject(name, attributes));
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return Files.newInputStream(resolve(name));
+    }
+
+    @Override
+    public Optional<Path> localPath(String name) {
+
+        Path path = resolve(name);
+
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public Stream<StoredObject> list(String prefix) throws IOException {
+
+        if (!Files.isDirectory(dir)) {
+            return Stream.empty();
+        }
+
+        return Files.list(dir)
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(prefix) && !name.startsWith(".");
+                })
+                .flatMap(path -> {
+                    try {
+
+                        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+                        return attributes.isRegularFile()
+                                ? Stream.of(toObject(path.getFileName().toString(), attributes))
+                                : Stream.empty();
+
+                    } catch (IOException e) {
+
+                        // removed while listing
+                        return Stream.empty();
+
+                    }
+                });
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(resolve(name));
+    }
+
+    // names are flat; anything reaching outside the directory is rejected
+    private Path resolve(String name) {
+
+        Path path = dir.resolve(name).normalize();
+
+        if (!dir.equals(path.getParent())) {
+            throw new IllegalArgumentException("Invalid file name");
+        }
+
+        return path;
+    }
+
+    private static StoredObject toObject(String name, BasicFileAttributes attributes) {
+
+        return new StoredObject(
+                name,
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString()
+        );
+    }
+}
@@ -0,0 +1,41 @@
+package com.banasthali.backend.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Where uploaded files live, selected by file.storage:
+//   local  - a directory (file.upload-dir), for a single node
+//   gridfs - MongoDB GridFS, shared by every node behind the load balancer
+//
+// Names are flat (<sha256>.<ext>, <sha256>_thumb.jpg, ...). Files are written
+// to a local temp file first and handed over complete with put(), so no
+// backend ever exposes a half-written upload.
+public interface UploadStorage {
+
+    record StoredObject(String name, long size, long lastModified, String contentType) {
+    }
+
+    // a temp file put() can take over cheaply; the caller deletes it if put() is not reached
+    Path createTempFile() throws IOException;
+
+    // stores source under name, replacing any existing file; source may be moved away
+    void put(String name, Path source, String contentType) throws IOException;
+
+    boolean exists(String name) throws IOException;
+
+    Optional<StoredObject> stat(String name) throws IOException;
+
+    // throws NoSuchFileException if there is no such file
+    InputStream open(String name) throws IOException;
+
+    // a local file with the content, when the backend has one, for zero-copy serving
+    Optional<Path> localPath(String name) throws IOException;
+
+    // every file whose name starts with prefix; the stream must be closed
+    Stream<StoredObject> list(String prefix) throws IOException;
+
+    void delete(String name) throws IOException;
+}
@@ -0,0 +1,26 @@
+package com.banasthali.backend.util;
+
+// Great-circle distance on a spherical earth (haversine).
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    // length of one degree of latitude
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private GeoDistance() {}
+
+    public static double meters(double lat1, double lng1, double lat2, double lng2) {
+
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+
+        double sinLat = Math.sin(dLat / 2);
+        double sinLng = Math.sin(dLng / 2);
+
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -0,0 +1,190 @@
+package com.banasthali.backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadBulkheadFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService uploads = Executors.newCachedThreadPool();
+
+    // uploads in the chain wait for this
+    private final CountDownLatch finish = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+
+        finish.countDown();
+
+        uploads.shutdownNow();
+    }
+
+    @Test
+    void admitsUpToMaxConcurrentThenRejectsWhenTheQueueIsFull() throws Exception {
+
+        UploadBulkheadFilter filter = filter(2, 0, Duration.ofSeconds(5));
+
+        Future<MockHttpServletResponse> first = uploads.submit(() -> upload(filter, blockingChain()));
+        Future<MockHttpServletResponse> second = uploads.submit(() -> upload(filter, blockingChain()));
+
+        awaitUntil(() -> gauge("uploads.bulkhead.active") == 2);
+
+        MockHttpServletResponse rejected = upload(filter, new MockFilterChain());
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+        assertThat(rejected.getContentAsString()).contains("Too many uploads in progress");
+        assertThat(rejected("queue_full")).isEqualTo(1);
+
+        finish.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(second.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(gauge("uploads.bulkhead.active")).isZero();
+    }
+
+    @Test
+    void queuedUploadGetsTheNextSlot() throws Exception {
+
+        UploadBulkheadFilter filter = filter(1, 1, Duration.ofSeconds(5));
+
+        Future<MockHttpServletResponse> running = uploads.submit(() -> upload(filter, blockingChain()));
+
+        awaitUntil(() -> gauge("uploads.bulkhead.active") == 1);
+
+        Future<MockHttpServletResponse> queued = uploads.submit(() -> upload(filter, new MockFilterChain()));
+
+        awaitUntil(() -> gauge("uploads.bulkhead.queue") == 1);
+
+        // beyond the one queue slot
+        assertThat(upload(filter, new MockFilterChain()).getStatus()).isEqualTo(429);
+
+        finish.countDown();
+
+        assertThat(running.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(queued.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+
+        assertThat(gauge("uploads.bulkhead.queue")).isZero();
+        assertThat(meterRegistry.get("uploads.bulkhead.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void queuedUploadIsRejectedAfterMaxWait() throws Exception {
+
+        UploadBulkheadFilter filter = filter(1, 4, Duration.ofMillis(50));
+
+        uploads.submit(() -> upload(filter, blockingChain()));
+
+        awaitUntil(() -> gauge("uploads.bulkhead.active") == 1);
+
+        MockHttpServletResponse rejected = upload(filter, new MockFilterChain());
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+        assertThat(rejected("timeout")).isEqualTo(1);
+        assertThat(gauge("uploads.bulkhead.queue")).isZero();
+    }
+
+    @Test
+    void permitIsReleasedWhenTheChainThrows() throws Exception {
+
+        UploadBulkheadFilter filter = filter(1, 0, Duration.ofSeconds(5));
+
+        FilterChain failing = (request, response) -> {
+            throw new IllegalStateException("disk full");
+        };
+
+        assertThatThrownBy(() -> upload(filter, failing)).hasMessage("disk full");
+
+        assertThat(gauge("uploads.bulkhead.active")).isZero();
+        assertThat(upload(filter, new MockFilterChain()).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void otherRequestsAreNotLimited() throws Exception {
+
+        UploadBulkheadFilter filter = filter(1, 0, Duration.ofSeconds(5));
+
+        uploads.submit(() -> upload(filter, blockingChain()));
+
+        awaitUntil(() -> gauge("uploads.bulkhead.active") == 1);
+
+        MockHttpServletRequest json = new MockHttpServletRequest("POST", "/api/items");
+        json.setContentType("application/json");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(json, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.find("uploads.bulkhead.rejected").counter()).isNull();
+    }
+
+    private UploadBulkheadFilter filter(int maxConcurrent, int queueCapacity, Duration maxWait) {
+        return new UploadBulkheadFilter(meterRegistry, maxConcurrent, queueCapacity, maxWait, Duration.ofSeconds(10));
+    }
+
+    private static MockHttpServletResponse upload(UploadBulkheadFilter filter, FilterChain chain) throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/items");
+        request.setContentType("multipart/form-data; boundary=x");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        return response;
+    }
+
+    private FilterChain blockingChain() {
+
+        return (request, response) -> {
+
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+        };
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("uploads.bulkhead.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condition.getAsBoolean()) {
+
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+
+            Thread.sleep(5);
+
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.banasthali.backend.controller;
+
+import com.banasthali.backend.dto.BusEta;
+import com.banasthali.backend.model.Post;
+import com.banasthali.backend.repository.PostRepository;
+import com.banasthali.backend.service.DriverLocationRegistry;
+import com.banasthali.backend.service.PostMatrix;
+import com.banasthali.backend.service.routing.RoadRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BusControllerTest {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+
+    private final DriverLocationRegistry driverLocationRegistry = mock(DriverLocationRegistry.class);
+
+    private final RoadRouter roadRouter = mock(RoadRouter.class);
+
+    private final PostMatrix postMatrix = new PostMatrix(postRepository);
+
+    private final BusController controller =
+            new BusController(postRepository, driverLocationRegistry, roadRouter, postMatrix);
+
+    @BeforeEach
+    void setUp() {
+
+        when(postRepository.findAll()).thenReturn(List.of(
+                Post.builder().id("gate").latitude(26.4025).longitude(75.8741).build()
+        ));
+
+        postMatrix.rebuild();
+
+        // no road graph: straight-line ETAs
+        when(roadRouter.route(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenReturn(Optional.empty());
+
+        when(driverLocationRegistry.nearestAvailable(eq(26.4025), eq(75.8741), eq(2), isNull())).thenReturn(List.of(
+                nearby("bus-1", 2500),
+                nearby("bus-2", 5000)
+        ));
+    }
+
+    @Test
+    void stopComesFromTheMatrixNotMongo() {
+
+        List<BusEta> etas = controller.getBusETA("gate", 2, null);
+
+        assertThat(etas).extracting(BusEta::driverId).containsExactly("bus-1", "bus-2");
+
+        // 2.5 km at 25 km/h
+        assertThat(etas.get(0).etaMinutes()).isEqualTo(6.0);
+        assertThat(etas.get(0).distanceKm()).isEqualTo(2.5);
+
+        verify(postRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void unknownPostIsLookedUp() {
+
+        when(postRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> controller.getBusETA("missing", 2, null))
+                .hasMessageContaining("Post not found");
+    }
+
+    @Test
+    void postWithoutCoordinatesIsRejected() {
+
+        when(postRepository.findById("canteen")).thenReturn(Optional.of(Post.builder().id("canteen").build()));
+
+        assertThatThrownBy(() -> controller.getBusETA("canteen", 2, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Post has no coordinates");
+    }
+
+    private static DriverLocationRegistry.NearbyDriver nearby(String driverId, double meters) {
+
+        return new DriverLocationRegistry.NearbyDriver(
+                new DriverLocationRegistry.DriverLocation(driverId, 26.41, 75.87, LocalDateTime.now(), true),
+                meters
+        );
+    }
+}
@@ -0,0 +1,78 @@
+package com.banasthali.backend.controller;
+
+import com.banasthali.backend.exception.GlobalExceptionHandler;
+import com.banasthali.backend.service.DriverService;
+import com.banasthali.backend.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Location pings are unboxed into primitive doubles by the registry, so a
+// missing coordinate has to stop at validation.
+class LocationUpdateValidationTest {
+
+    private final DriverService driverService = mock(DriverService.class);
+
+    private final UserService userService = mock(UserService.class);
+
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new DriverController(driverService), userController())
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void driverPingWithoutLongitudeIs400() throws Exception {
+
+        mockMvc.perform(put("/api/driver/location")
+                        .principal(new UsernamePasswordAuthenticationToken("driver@banasthali.in", null))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"latitude\": 26.40}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.longitude").exists());
+
+        verifyNoInteractions(driverService);
+    }
+
+    @Test
+    void driverStatusWithoutOnlineIs400() throws Exception {
+
+        mockMvc.perform(patch("/api/driver/status")
+                        .principal(new UsernamePasswordAuthenticationToken("driver@banasthali.in", null))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(driverService);
+    }
+
+    @Test
+    void userPingWithoutLatitudeIs400() throws Exception {
+
+        mockMvc.perform(patch("/api/users/driver/location")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"longitude\": 75.87}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.latitude").exists());
+
+        verifyNoInteractions(userService);
+    }
+
+    private UserController userController() {
+
+        UserController controller = new UserController();
+
+        ReflectionTestUtils.setField(controller, "userService", userService);
+
+        return controller;
+    }
+}
@@ -0,0 +1,119 @@
+package com.banasthali.backend.controller;
+
+import com.banasthali.backend.model.Post;
+import com.banasthali.backend.repository.PostRepository;
+import com.banasthali.backend.service.PostMatrix;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// etags.in-memory=false: tags are worked out from what is stored, as several
+// instances would each do
+class PostControllerTest {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+
+    private final PostMatrix postMatrix = new PostMatrix(postRepository);
+
+    private final PostController controller = new PostController(postRepository, postMatrix, new ObjectMapper());
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+    @BeforeEach
+    void setUp() {
+
+        ReflectionTestUtils.setField(controller, "inMemoryETags", false);
+
+        stored(post("gate", "Main Gate", 26.4025), post("library", "Library", 26.4051));
+    }
+
+    @Test
+    void sameListGets304() throws Exception {
+
+        String etag = etag("/api/posts");
+
+        mockMvc.perform(get("/api/posts").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void anyChangedFieldChangesTheListTag() throws Exception {
+
+        String before = etag("/api/posts");
+
+        stored(post("gate", "Main Gate", 26.4025), post("library", "Central Library", 26.4051));
+
+        String renamed = etag("/api/posts");
+
+        stored(post("gate", "Main Gate", 26.4025), post("library", "Central Library", 26.4052));
+
+        assertThat(renamed).isNotEqualTo(before);
+        assertThat(etag("/api/posts")).isNotEqualTo(renamed).isNotEqualTo(before);
+
+        mockMvc.perform(get("/api/posts").header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void matrixTagFollowsTheMatrix() throws Exception {
+
+        postMatrix.rebuild();
+
+        String etag = etag("/api/posts/matrix");
+
+        mockMvc.perform(get("/api/posts/matrix").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // rebuilt after a write on another instance reached this one
+        stored(post("gate", "Main Gate", 26.4025), post("library", "Library", 26.4100));
+        postMatrix.rebuild();
+
+        mockMvc.perform(get("/api/posts/matrix").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void tagsDoNotDependOnTheInstance() throws Exception {
+
+        PostController other = new PostController(postRepository, postMatrix, new ObjectMapper());
+
+        ReflectionTestUtils.setField(other, "inMemoryETags", false);
+
+        String etag = etag("/api/posts");
+
+        MockMvcBuilders.standaloneSetup(other).build()
+                .perform(get("/api/posts").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    private String etag(String path) throws Exception {
+
+        return mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+    }
+
+    private void stored(Post... posts) {
+        when(postRepository.findAll()).thenReturn(List.of(posts));
+    }
+
+    private static Post post(String id, String name, double latitude) {
+        return Post.builder().id(id).name(name).latitude(latitude).longitude(75.8741).build();
+    }
+}
@@ -0,0 +1,271 @@
+package com.banasthali.backend.controller;
+
+import com.banasthali.backend.service.UploadFileIndex;
+import com.banasthali.backend.service.storage.UploadStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UploadControllerTest {
+
+    private static final String NAME = "photo.jpg";
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    // whole seconds, as HTTP dates carry them
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    private static final String ETAG = "\"a-18bcfe56800\"";
+
+    @TempDir
+    Path tempDir;
+
+    private final UploadStorage uploadStorage = mock(UploadStorage.class);
+
+    private final UploadController controller = new UploadController(new UploadFileIndex(uploadStorage), uploadStorage);
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        when(uploadStorage.stat(anyString())).thenReturn(Optional.empty());
+        when(uploadStorage.stat(NAME)).thenReturn(Optional.of(
+                new UploadStorage.StoredObject(NAME, CONTENT.length, LAST_MODIFIED, "image/jpeg")));
+
+        // streamed, as from GridFS without a disk cache
+        when(uploadStorage.localPath(NAME)).thenReturn(Optional.empty());
+        when(uploadStorage.open(NAME)).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT));
+    }
+
+    @Test
+    void wholeFile() throws IOException {
+
+        MockHttpServletResponse response = serve(get());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=86400");
+    }
+
+    @Test
+    void currentCopyGets304() throws IOException {
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void singleRange() throws IOException {
+
+        MockHttpServletResponse response = serve(range("bytes=2-5"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void suffixAndOpenEndedRanges() throws IOException {
+
+        assertThat(serve(range("bytes=-3")).getContentAsString()).isEqualTo("789");
+        assertThat(serve(range("bytes=7-")).getContentAsString()).isEqualTo("789");
+
+        // an end past the file is cut to it
+        assertThat(serve(range("bytes=8-100")).getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 8-9/10");
+    }
+
+    @Test
+    void rangePastTheEndGets416() throws IOException {
+
+        MockHttpServletResponse response = serve(range("bytes=10-20"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void severalRangesGetTheWholeFile() throws IOException {
+
+        MockHttpServletResponse response = serve(range("bytes=0-1,4-5"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws IOException {
+
+        MockHttpServletResponse response = serve(range("lines=1-2"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void ifRangeWithTheCurrentETagGetsTheRange() throws IOException {
+
+        MockHttpServletRequest request = range("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("01");
+    }
+
+    @Test
+    void ifRangeWithAnOldVersionGetsTheWholeFile() throws IOException {
+
+        MockHttpServletRequest staleETag = range("bytes=0-1");
+        staleETag.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+
+        MockHttpServletRequest staleDate = range("bytes=0-1");
+        staleDate.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED - 60_000);
+
+        for (MockHttpServletRequest request : new MockHttpServletRequest[] {staleETag, staleDate}) {
+
+            MockHttpServletResponse response = serve(request);
+
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getContentAsString()).isEqualTo("0123456789");
+
+        }
+    }
+
+    @Test
+    void ifRangeWithTheCurrentDateGetsTheRange() throws IOException {
+
+        MockHttpServletRequest request = range("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED);
+
+        assertThat(serve(request).getStatus()).isEqualTo(206);
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws IOException {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/uploads/" + NAME);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void localRangeIsCopiedFromTheFile() throws IOException {
+
+        Path file = Files.write(tempDir.resolve(NAME), CONTENT);
+
+        when(uploadStorage.localPath(NAME)).thenReturn(Optional.of(file));
+
+        assertThat(serve(range("bytes=3-6")).getContentAsString()).isEqualTo("3456");
+    }
+
+    @Test
+    void largeLocalFileIsHandedToSendfile() throws IOException {
+
+        Path file = Files.write(tempDir.resolve("large.jpg"), new byte[100 * 1024]);
+
+        when(uploadStorage.stat("large.jpg")).thenReturn(Optional.of(
+                new UploadStorage.StoredObject("large.jpg", 100 * 1024, LAST_MODIFIED, "image/jpeg")));
+        when(uploadStorage.localPath("large.jpg")).thenReturn(Optional.of(file));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/large.jpg");
+        request.addHeader(HttpHeaders.RANGE, "bytes=1024-");
+        request.setAttribute("org.apache.tomcat.sendfile.support", true);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.serve("large.jpg", request, response);
+
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(1024L);
+
+        // exclusive
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(100 * 1024L);
+    }
+
+    @Test
+    void missingFileGets404() throws IOException {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.serve("missing.jpg", new MockHttpServletRequest("GET", "/uploads/missing.jpg"), response);
+
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    void fileDeletedAfterLookupGets404() throws IOException {
+
+        when(uploadStorage.open(NAME)).thenThrow(new NoSuchFileException(NAME));
+
+        assertThat(serve(get()).getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    void bundledSeedImageIsServedFromTheClasspath() throws IOException {
+
+        String seed = "44b08608-3506-4b42-86d7-8a5c65a3c515_IMG_20251009_224057635_HDR.jpg";
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + seed);
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.serve(seed, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(response.getContentAsByteArray()).containsExactly(0xFF, 0xD8, 0xFF);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.serve(NAME, request, response);
+
+        return response;
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/uploads/" + NAME);
+    }
+
+    private static MockHttpServletRequest range(String range) {
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, range);
+
+        return request;
+    }
+}
@@ -0,0 +1,53 @@
+package com.banasthali.backend.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ItemCursorTest {
+
+    @Test
+    void roundTrips() {
+
+        // Mongo keeps milliseconds, so that is all a cursor has to carry
+        ItemCursor cursor = new ItemCursor(LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000), "65f2a1c0e4b0a1b2c3d4e5f6");
+
+        assertThat(ItemCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+
+        ItemCursor cursor = new ItemCursor(LocalDateTime.of(2025, 1, 1, 0, 0), "id/with+odd?chars");
+
+        assertThat(cursor.encode()).matches("[A-Za-z0-9_-]+");
+        assertThat(ItemCursor.decode(cursor.encode()).id()).isEqualTo("id/with+odd?chars");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "not base64!", "%%%"})
+    void rejectsTokensThatAreNotBase64(String token) {
+
+        assertThatThrownBy(() -> ItemCursor.decode(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"no-separator", "soon:abc", ":abc", "1700000000000:", "1e3:abc"})
+    void rejectsTamperedTokens(String raw) {
+
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> ItemCursor.decode(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+}
@@ -0,0 +1,186 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.BusLocation;
+import com.banasthali.backend.event.DriverLocationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.SimpleMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BusLocationBroadcasterTest {
+
+    private static final String TOPIC = "/topic/bus/bus-1";
+
+    private static final LocalDateTime AT = LocalDateTime.of(2026, 10, 18, 9, 0);
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    private final MessageChannel clientOutboundChannel = mock(MessageChannel.class);
+
+    private final DriverLocationRegistry driverLocationRegistry = mock(DriverLocationRegistry.class);
+
+    private BusLocationBroadcaster broadcaster(Duration minInterval) {
+
+        when(messagingTemplate.getMessageConverter()).thenReturn(new SimpleMessageConverter());
+
+        return new BusLocationBroadcaster(
+                messagingTemplate,
+                clientOutboundChannel,
+                driverLocationRegistry,
+                new SimpleMeterRegistry(),
+                minInterval
+        );
+    }
+
+    @Test
+    void goingOfflineSendsOneUpdateWithoutPosition() {
+
+        BusLocationBroadcaster broadcaster = broadcaster(Duration.ZERO);
+
+        broadcaster.onLocation(event(true, 26.40));
+
+        verify(messagingTemplate).convertAndSend(eq(TOPIC), eq(bus(26.40)));
+
+        clearInvocations(messagingTemplate);
+
+        // off duty, and the phone keeps pinging
+        broadcaster.onLocation(event(false, 26.41));
+        broadcaster.onLocation(event(false, 26.42));
+        broadcaster.onLocation(event(false, 26.43));
+
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+
+        verify(messagingTemplate).convertAndSend(eq(TOPIC), sent.capture());
+
+        BusLocation offline = (BusLocation) sent.getValue();
+
+        assertThat(offline.available()).isFalse();
+        assertThat(offline.latitude()).isNull();
+        assertThat(offline.longitude()).isNull();
+    }
+
+    @Test
+    void backOnlineSendsPositionsAgain() {
+
+        BusLocationBroadcaster broadcaster = broadcaster(Duration.ZERO);
+
+        broadcaster.onLocation(event(false, 26.41));
+        broadcaster.onLocation(event(true, 26.44));
+
+        verify(messagingTemplate).convertAndSend(eq(TOPIC), eq(bus(26.44)));
+    }
+
+    @Test
+    void offlineUpdateReplacesAHeldPosition() {
+
+        BusLocationBroadcaster broadcaster = broadcaster(Duration.ofHours(1));
+
+        // the first goes out, the second waits for the interval
+        broadcaster.onLocation(event(true, 26.40));
+        broadcaster.onLocation(event(true, 26.41));
+        broadcaster.onLocation(event(false, 26.42));
+
+        broadcaster.publishFleet();
+
+        ArgumentCaptor<Object> fleet = ArgumentCaptor.forClass(Object.class);
+
+        verify(messagingTemplate).convertAndSend(eq(BusLocationBroadcaster.FLEET_TOPIC), fleet.capture());
+
+        assertThat((List<?>) fleet.getValue()).singleElement().satisfies(location -> {
+            assertThat(((BusLocation) location).available()).isFalse();
+            assertThat(((BusLocation) location).latitude()).isNull();
+        });
+
+        verify(messagingTemplate, never()).convertAndSend(eq(TOPIC), eq(bus(26.41)));
+    }
+
+    @Test
+    void subscriberGetsNoSnapshotOfAnOffDutyBus() {
+
+        BusLocationBroadcaster broadcaster = broadcaster(Duration.ZERO);
+
+        when(driverLocationRegistry.get("bus-1")).thenReturn(Optional.of(location(false, 26.40)));
+
+        broadcaster.onSubscribe(subscribe(TOPIC));
+
+        verify(clientOutboundChannel, never()).send(any());
+    }
+
+    @Test
+    void subscriberGetsTheSnapshotOfAnOnlineBus() {
+
+        BusLocationBroadcaster broadcaster = broadcaster(Duration.ZERO);
+
+        when(driverLocationRegistry.get("bus-1")).thenReturn(Optional.of(location(true, 26.40)));
+        when(clientOutboundChannel.send(any())).thenReturn(true);
+
+        broadcaster.onSubscribe(subscribe(TOPIC));
+
+        verify(clientOutboundChannel).send(any());
+    }
+
+    @Test
+    void fleetSnapshotLeavesOutOffDutyBuses() {
+
+        BusLocationBroadcaster broadcaster = broadcaster(Duration.ZERO);
+
+        when(driverLocationRegistry.all()).thenReturn(List.of(
+                location(true, 26.40),
+                new DriverLocationRegistry.DriverLocation("bus-2", 26.5, 75.9, LocalDateTime.now(), false)
+        ));
+        when(clientOutboundChannel.send(any())).thenReturn(true);
+
+        broadcaster.onSubscribe(subscribe(BusLocationBroadcaster.FLEET_TOPIC));
+
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+
+        verify(clientOutboundChannel).send(sent.capture());
+
+        assertThat(sent.getValue().getPayload().toString()).contains("bus-1").doesNotContain("bus-2");
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    private static DriverLocationRegistry.DriverLocation location(boolean available, double latitude) {
+        return new DriverLocationRegistry.DriverLocation("bus-1", latitude, 75.87, AT, available);
+    }
+
+    private static DriverLocationEvent event(boolean available, double latitude) {
+        return new DriverLocationEvent(location(available, latitude));
+    }
+
+    private static BusLocation bus(double latitude) {
+        return new BusLocation("bus-1", latitude, 75.87, true, AT);
+    }
+
+    private static SessionSubscribeEvent subscribe(String destination) {
+
+        StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        headers.setDestination(destination);
+        headers.setSessionId("session-1");
+        headers.setSubscriptionId("sub-1");
+
+        return new SessionSubscribeEvent(BusLocationBroadcasterTest.class, MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,157 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.util.GeoDistance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DriverGridTest {
+
+    private static final double CELL_METERS = 500;
+
+    private static final double CELL_DEGREES = CELL_METERS / GeoDistance.METERS_PER_DEGREE;
+
+    // campus gate
+    private static final double LATITUDE = 26.4025;
+    private static final double LONGITUDE = 75.8741;
+
+    private final DriverGrid grid = new DriverGrid(CELL_METERS);
+
+    @Test
+    void ringsVisitEachCellOnce() {
+
+        // the centre of the query point's cell
+        double latitude = (Math.floor(LATITUDE / CELL_DEGREES) + 0.5) * CELL_DEGREES;
+        double longitude = (Math.floor(LONGITUDE / CELL_DEGREES) + 0.5) * CELL_DEGREES;
+
+        // one driver in every cell of a 9 x 9 block around it
+        for (int dr = -4; dr <= 4; dr++) {
+            for (int dc = -4; dc <= 4; dc++) {
+                grid.move(dr + ":" + dc, latitude + dr * CELL_DEGREES, longitude + dc * CELL_DEGREES);
+            }
+        }
+
+        assertThat(grid.ring(latitude, longitude, 0)).containsExactly("0:0");
+
+        Set<String> seen = new HashSet<>();
+
+        for (int ring = 0; ring <= 4; ring++) {
+
+            List<String> ids = grid.ring(latitude, longitude, ring);
+
+            assertThat(ids).hasSize(ring == 0 ? 1 : 8 * ring);
+
+            for (String id : ids) {
+
+                String[] offsets = id.split(":");
+
+                int distance = Math.max(Math.abs(Integer.parseInt(offsets[0])), Math.abs(Integer.parseInt(offsets[1])));
+
+                assertThat(distance).isEqualTo(ring);
+                assertThat(seen.add(id)).isTrue();
+
+            }
+
+        }
+
+        assertThat(seen).hasSize(81);
+    }
+
+    @Test
+    void moveAcrossCellsLeavesTheOldCell() {
+
+        grid.move("bus-1", LATITUDE, LONGITUDE);
+        grid.move("bus-1", LATITUDE + 3 * CELL_DEGREES, LONGITUDE);
+
+        assertThat(grid.ring(LATITUDE, LONGITUDE, 0)).isEmpty();
+        assertThat(grid.ring(LATITUDE + 3 * CELL_DEGREES, LONGITUDE, 0)).containsExactly("bus-1");
+        assertThat(grid.size()).isEqualTo(1);
+    }
+
+    @Test
+    void moveWithinACellKeepsOneEntry() {
+
+        grid.move("bus-1", LATITUDE, LONGITUDE);
+        grid.move("bus-1", LATITUDE + 0.00001, LONGITUDE + 0.00001);
+
+        assertThat(grid.ring(LATITUDE, LONGITUDE, 0)).containsExactly("bus-1");
+    }
+
+    @Test
+    void removedDriverIsGone() {
+
+        grid.move("bus-1", LATITUDE, LONGITUDE);
+        grid.move("bus-2", LATITUDE, LONGITUDE);
+
+        grid.remove("bus-1");
+        grid.remove("unknown");
+
+        assertThat(grid.ring(LATITUDE, LONGITUDE, 0)).containsExactly("bus-2");
+        assertThat(grid.size()).isEqualTo(1);
+    }
+
+    @Test
+    void cellsStraddleTheZeroMeridianAndEquator() {
+
+        grid.move("west", 0.0001, -0.0001);
+        grid.move("east", -0.0001, 0.0001);
+
+        assertThat(grid.ring(0.0001, -0.0001, 0)).containsExactly("west");
+        assertThat(grid.ring(0.0001, -0.0001, 1)).containsExactly("east");
+    }
+
+    // Whatever lies outside rings 0..r is at least clearanceMeters(r) away,
+    // which is what lets a nearest search stop early.
+    @ParameterizedTest
+    @ValueSource(doubles = {0.0, 26.4025, -33.9, 60.0, 80.0})
+    void clearanceIsALowerBound(double latitude) {
+
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+
+            double queryLatitude = latitude + random.nextDouble() * CELL_DEGREES;
+            double queryLongitude = LONGITUDE + random.nextDouble() * CELL_DEGREES;
+
+            double driverLatitude = queryLatitude + (random.nextDouble() - 0.5) * 20 * CELL_DEGREES;
+            double driverLongitude = queryLongitude + (random.nextDouble() - 0.5) * 20 * CELL_DEGREES;
+
+            int ring = Math.max(
+                    Math.abs(cell(driverLatitude) - cell(queryLatitude)),
+                    Math.abs(cell(driverLongitude) - cell(queryLongitude))
+            );
+
+            double meters = GeoDistance.meters(queryLatitude, queryLongitude, driverLatitude, driverLongitude);
+
+            // the driver is outside every ring before its own
+            for (int inside = 0; inside < ring; inside++) {
+                assertThat(meters).isGreaterThanOrEqualTo(grid.clearanceMeters(queryLatitude, inside));
+            }
+
+        }
+    }
+
+    @Test
+    void clearanceGrowsWithTheRing() {
+
+        assertThat(grid.clearanceMeters(LATITUDE, 0)).isZero();
+
+        for (int ring = 1; ring < 10; ring++) {
+            assertThat(grid.clearanceMeters(LATITUDE, ring)).isGreaterThan(grid.clearanceMeters(LATITUDE, ring - 1));
+        }
+
+        // longitude cells narrow with latitude
+        assertThat(grid.clearanceMeters(LATITUDE, 4)).isLessThan(4 * CELL_METERS);
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+}
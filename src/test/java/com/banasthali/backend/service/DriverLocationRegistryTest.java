@@ -0,0 +1,122 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.util.GeoDistance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DriverLocationRegistryTest {
+
+    private static final double LATITUDE = 26.4025;
+    private static final double LONGITUDE = 75.8741;
+
+    private final DriverLocationRegistry registry = new DriverLocationRegistry(
+            mock(MongoTemplate.class),
+            new SimpleMeterRegistry(),
+            new DriverGrid(500),
+            mock(ApplicationEventPublisher.class)
+    );
+
+    private final Random random = new Random(7);
+
+    @BeforeEach
+    void placeDrivers() {
+
+        // 200 buses within about 5 km, a few far off campus, a few off duty
+        for (int i = 0; i < 200; i++) {
+            registry.update("bus-" + i, around(0.05), aroundLongitude(0.05), true);
+        }
+
+        registry.update("far-1", LATITUDE + 1, LONGITUDE, true);
+        registry.update("far-2", LATITUDE, LONGITUDE - 2, true);
+
+        for (int i = 0; i < 10; i++) {
+            registry.update("off-" + i, around(0.001), aroundLongitude(0.001), false);
+        }
+    }
+
+    @Test
+    void nearestMatchesAFullScan() {
+
+        for (int query = 0; query < 200; query++) {
+
+            double latitude = around(0.08);
+            double longitude = aroundLongitude(0.08);
+
+            for (int limit : new int[] {1, 3, 10}) {
+
+                assertThat(ids(registry.nearestAvailable(latitude, longitude, limit, null)))
+                        .containsExactlyElementsOf(bruteForce(latitude, longitude, limit, Double.POSITIVE_INFINITY));
+
+            }
+
+        }
+    }
+
+    @Test
+    void radiusMatchesAFullScan() {
+
+        for (int query = 0; query < 100; query++) {
+
+            double latitude = around(0.05);
+            double longitude = aroundLongitude(0.05);
+
+            assertThat(ids(registry.nearestAvailable(latitude, longitude, null, 1200.0)))
+                    .containsExactlyElementsOf(bruteForce(latitude, longitude, Integer.MAX_VALUE, 1200));
+
+        }
+    }
+
+    @Test
+    void farDriversAreFoundByTheFallbackScan() {
+
+        List<DriverLocationRegistry.NearbyDriver> nearest =
+                registry.nearestAvailable(LATITUDE + 1.2, LONGITUDE, 1, null);
+
+        assertThat(ids(nearest)).containsExactly("far-1");
+    }
+
+    @Test
+    void offDutyDriversAreNeverReturned() {
+
+        assertThat(ids(registry.nearestAvailable(LATITUDE, LONGITUDE, 300, null)))
+                .hasSize(202)
+                .noneMatch(id -> id.startsWith("off-"));
+    }
+
+    private List<String> bruteForce(double latitude, double longitude, int limit, double radiusMeters) {
+
+        return registry.all().stream()
+                .filter(location -> location.available() && location.hasPosition())
+                .filter(location -> distance(latitude, longitude, location) <= radiusMeters)
+                .sorted(Comparator.comparingDouble(location -> distance(latitude, longitude, location)))
+                .limit(limit)
+                .map(DriverLocationRegistry.DriverLocation::driverId)
+                .toList();
+    }
+
+    private static double distance(double latitude, double longitude, DriverLocationRegistry.DriverLocation location) {
+        return GeoDistance.meters(latitude, longitude, location.latitude(), location.longitude());
+    }
+
+    private static List<String> ids(List<DriverLocationRegistry.NearbyDriver> drivers) {
+        return drivers.stream().map(driver -> driver.location().driverId()).toList();
+    }
+
+    private double around(double spread) {
+        return LATITUDE + (random.nextDouble() - 0.5) * spread;
+    }
+
+    private double aroundLongitude(double spread) {
+        return LONGITUDE + (random.nextDouble() - 0.5) * spread;
+    }
+}
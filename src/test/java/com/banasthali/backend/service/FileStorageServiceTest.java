@@ -0,0 +1,356 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.model.UploadBlob;
+import com.banasthali.backend.service.storage.UploadStorage;
+import com.sun.management.ThreadMXBean;
+import com.mongodb.client.result.DeleteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileStorageServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 13, 1, 2, 3};
+
+    @TempDir
+    Path tempDir;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    private final UploadStorage uploadStorage = mock(UploadStorage.class);
+
+    private final FileStorageService service =
+            new FileStorageService(mongoTemplate, uploadStorage, mock(UploadFileIndex.class));
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        ReflectionTestUtils.setField(service, "maxSize", DataSize.ofMegabytes(10));
+
+        when(uploadStorage.createTempFile()).thenAnswer(invocation -> Files.createTempFile(tempDir, ".upload", ".tmp"));
+        when(uploadStorage.list(anyString())).thenAnswer(invocation -> Stream.empty());
+
+        when(mongoTemplate.remove(any(Query.class), eq(UploadBlob.class))).thenReturn(DeleteResult.acknowledged(1));
+    }
+
+    @Test
+    void newBlobIsWritten() throws IOException {
+
+        // no previous document: the upsert inserted it
+        whenCounted().thenReturn(null);
+
+        FileStorageService.StoredFile stored = service.store(png());
+
+        assertThat(stored.url()).matches("/uploads/[0-9a-f]{64}\\.png");
+        assertThat(stored.contentType()).isEqualTo("image/png");
+
+        verify(uploadStorage).put(eq(stored.url().substring("/uploads/".length())), any(Path.class), eq("image/png"));
+    }
+
+    @Test
+    void knownBlobIsNotWrittenAgain() throws IOException {
+
+        whenCounted().thenReturn(blob(1, false));
+        when(uploadStorage.exists(anyString())).thenReturn(true);
+
+        service.store(png());
+
+        verify(uploadStorage, never()).put(anyString(), any(Path.class), anyString());
+    }
+
+    @Test
+    void knownBlobWithoutItsFileIsWritten() throws IOException {
+
+        // the upload that inserted the blob has not finished its put, or never will
+        whenCounted().thenReturn(blob(1, false));
+        when(uploadStorage.exists(anyString())).thenReturn(false);
+
+        service.store(png());
+
+        verify(uploadStorage).put(anyString(), any(Path.class), eq("image/png"));
+    }
+
+    @Test
+    void failedWriteOfTheInserterIsRepairedByTheNextUpload() throws IOException {
+
+        // A inserts the blob, B acquires it too, then A's put fails: its
+        // release leaves B's reference, so nothing is deleted
+        whenCounted().thenReturn(null, blob(1, false), blob(1, false));
+        when(uploadStorage.exists(anyString())).thenReturn(false);
+
+        doThrow(new IOException("disk full"))
+                .doNothing()
+                .when(uploadStorage).put(anyString(), any(Path.class), anyString());
+
+        assertThatThrownBy(() -> service.store(png())).isInstanceOf(IOException.class);
+
+        // B finds no file and writes it
+        FileStorageService.StoredFile stored = service.store(png());
+
+        verify(uploadStorage, times(2)).put(eq(stored.url().substring("/uploads/".length())), any(Path.class), eq("image/png"));
+        verify(uploadStorage, never()).delete(anyString());
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(UploadBlob.class));
+    }
+
+    @Test
+    void failedExistsCheckReleasesTheReference() throws IOException {
+
+        whenCounted().thenReturn(blob(1, false), blob(1, false));
+        when(uploadStorage.exists(anyString())).thenThrow(new IOException("gridfs down"));
+
+        assertThatThrownBy(() -> service.store(png())).isInstanceOf(IOException.class);
+
+        verify(mongoTemplate, times(2)).findAndModify(
+                any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(UploadBlob.class));
+    }
+
+    @Test
+    void uploadWaitsForTheDeletionOfItsName() throws IOException {
+
+        whenCounted()
+                .thenThrow(new DuplicateKeyException("E11000"))
+                .thenReturn(null);
+
+        service.store(png());
+
+        verify(mongoTemplate, times(2)).findAndModify(
+                any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(UploadBlob.class));
+        verify(uploadStorage).put(anyString(), any(Path.class), eq("image/png"));
+    }
+
+    @Test
+    void failedWriteReleasesTheReference() throws IOException {
+
+        // inserted, then dropped back to zero by the release
+        whenCounted().thenReturn(null, blob(0, false));
+        whenClaimed().thenReturn(blob(0, false));
+
+        doThrow(new IOException("disk full")).when(uploadStorage).put(anyString(), any(Path.class), anyString());
+
+        assertThatThrownBy(() -> service.store(png())).isInstanceOf(IOException.class);
+
+        verify(mongoTemplate).remove(any(Query.class), eq(UploadBlob.class));
+    }
+
+    @Test
+    void lastReleaseDeletesAfterClaiming() throws IOException {
+
+        whenCounted().thenReturn(blob(0, false));
+        whenClaimed().thenReturn(blob(0, false));
+
+        service.release("/uploads/abc.png");
+
+        verify(uploadStorage).delete("abc.png");
+        verify(mongoTemplate).remove(any(Query.class), eq(UploadBlob.class));
+    }
+
+    @Test
+    void releaseKeepsTheFileWhenAnUploadGotInFirst() throws IOException {
+
+        // the count dropped to zero, then an upload on another node raised it
+        whenCounted().thenReturn(blob(0, false));
+        whenClaimed().thenReturn(null);
+
+        service.release("/uploads/abc.png");
+
+        verify(uploadStorage, never()).delete(anyString());
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(UploadBlob.class));
+    }
+
+    @Test
+    void releaseWithReferencesLeftKeepsTheFile() throws IOException {
+
+        whenCounted().thenReturn(blob(2, false));
+
+        service.release("/uploads/abc.png");
+
+        verify(uploadStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void collectDeletesClaimedImage() throws IOException {
+
+        whenCounted().thenReturn(null);
+
+        boolean collected = service.collect("abc", List.of(file("abc.png"), file("abc_thumb.jpg")), LocalDateTime.now());
+
+        assertThat(collected).isTrue();
+
+        verify(uploadStorage).delete("abc.png");
+        verify(uploadStorage).delete("abc_thumb.jpg");
+    }
+
+    @Test
+    void collectLeavesImageAnUploadHolds() throws IOException {
+
+        // the variant is claimed, the original was acquired after the mark
+        whenCounted()
+                .thenReturn(null)
+                .thenThrow(new DuplicateKeyException("E11000"));
+
+        boolean collected = service.collect("abc", List.of(file("abc_thumb.jpg"), file("abc.png")), LocalDateTime.now());
+
+        assertThat(collected).isFalse();
+
+        verify(uploadStorage, never()).delete(anyString());
+
+        // the claim inserted for the variant is taken back
+        verify(mongoTemplate).remove(any(Query.class), eq(UploadBlob.class));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "FFD8FFE000104A4649460001, JPEG",
+            "89504E470D0A1A0A0000000D, PNG",
+            "474946383961010001000000, GIF",
+            "524946460000000057454250, WEBP"
+    })
+    void typeIsTakenFromTheFirstBytes(String head, FileStorageService.ImageType type) {
+        assertThat(FileStorageService.ImageType.sniff(HexFormat.of().parseHex(head))).isEqualTo(type);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "FFD8",                     // cut short
+            "3C3F786D6C2076657273696F", // <?xml version, an SVG
+            "524946460000000057415645", // RIFF....WAVE
+            "25504446"                  // %PDF
+    })
+    void otherFilesAreRejected(String head) {
+        assertThat(FileStorageService.ImageType.sniff(HexFormat.of().parseHex(head))).isNull();
+    }
+
+    @Test
+    void claimedContentTypeIsIgnored() {
+
+        MockMultipartFile script = new MockMultipartFile(
+                "image", "photo.png", "image/png", "<script>alert(1)</script>".getBytes());
+
+        assertThatThrownBy(() -> service.store(script)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sizeIsCheckedOnTheBytesRead() {
+
+        ReflectionTestUtils.setField(service, "maxSize", DataSize.ofBytes(10));
+
+        // declares no size, as a chunked upload does
+        MockMultipartFile file = new MockMultipartFile("image", "photo.png", "image/png", PNG) {
+            @Override
+            public long getSize() {
+                return 0;
+            }
+        };
+
+        assertThatThrownBy(() -> service.store(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // The copy goes through fixed buffers, so what one upload allocates on
+    // the heap stays far below the file size.
+    @Test
+    void heapPerUploadDoesNotGrowWithFileSize() throws IOException {
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        whenCounted().thenReturn(null);
+
+        // class loading and mock setup count on the first call
+        service.store(png());
+
+        MockMultipartFile small = largePng(1024 * 1024);
+        MockMultipartFile large = largePng(8 * 1024 * 1024);
+
+        long smallBytes = allocatedBy(threads, () -> service.store(small));
+        long largeBytes = allocatedBy(threads, () -> service.store(large));
+
+        assertThat(largeBytes).isLessThan(1024 * 1024);
+        assertThat(largeBytes - smallBytes).isLessThan(256 * 1024);
+    }
+
+    private static long allocatedBy(ThreadMXBean threads, ThrowingRunnable upload) throws IOException {
+
+        long threadId = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+
+        upload.run();
+
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws IOException;
+    }
+
+    private static MockMultipartFile largePng(int size) {
+
+        byte[] content = new byte[size];
+
+        new Random(size).nextBytes(content);
+
+        System.arraycopy(PNG, 0, content, 0, PNG.length);
+
+        return new MockMultipartFile("image", "photo.png", "image/png", content);
+    }
+
+    private MockMultipartFile png() {
+        return new MockMultipartFile("image", "photo.png", "image/png", PNG);
+    }
+
+    // acquire, the count drop in release and the collector's claims pass options
+    private OngoingStubbing<UploadBlob> whenCounted() {
+        return when(mongoTemplate.findAndModify(
+                any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(UploadBlob.class)));
+    }
+
+    // the claim in release
+    private OngoingStubbing<UploadBlob> whenClaimed() {
+        return when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), eq(UploadBlob.class)));
+    }
+
+    private static UploadBlob blob(long refCount, boolean deleting) {
+        return UploadBlob.builder().id("abc.png").refCount(refCount).deleting(deleting).build();
+    }
+
+    private static UploadStorage.StoredObject file(String name) {
+        return new UploadStorage.StoredObject(name, 100, 0, "image/png");
+    }
+}
@@ -0,0 +1,144 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.config.CacheConfig;
+import com.banasthali.backend.dto.ItemCard;
+import com.banasthali.backend.dto.ItemResponse;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemCacheUpdaterTest {
+
+    private final CaffeineCacheManager cacheManager =
+            new CaffeineCacheManager(CacheConfig.ITEM_FEED, CacheConfig.ITEMS_BY_CATEGORY);
+
+    private final ItemCacheUpdater updater = new ItemCacheUpdater(cacheManager, new SimpleMeterRegistry());
+
+    private final Cache feed = cacheManager.getCache(CacheConfig.ITEM_FEED);
+
+    private final Cache byCategory = cacheManager.getCache(CacheConfig.ITEMS_BY_CATEGORY);
+
+    @BeforeEach
+    void cacheTheFeed() {
+
+        // newest first, as ItemService loads it
+        feed.put(ItemCacheUpdater.CARD, List.of(
+                ItemCard.fromItem(item("3", "Books", 3)),
+                ItemCard.fromItem(item("2", "Books", 2)),
+                ItemCard.fromItem(item("1", "Cycles", 1))
+        ));
+
+        byCategory.put(ItemCacheUpdater.categoryKey(ItemCacheUpdater.CARD, "Books"), List.of(
+                ItemCard.fromItem(item("3", "Books", 3)),
+                ItemCard.fromItem(item("2", "Books", 2))
+        ));
+    }
+
+    @Test
+    void newItemIsInsertedByCreatedAt() {
+
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.CREATED, item("4", "Books", 4)));
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.CREATED, item("5", "Books", 2.5)));
+
+        assertThat(cardIds(feed, ItemCacheUpdater.CARD)).containsExactly("4", "3", "5", "2", "1");
+        assertThat(cardIds(byCategory, ItemCacheUpdater.categoryKey(ItemCacheUpdater.CARD, "books")))
+                .containsExactly("4", "3", "5", "2");
+    }
+
+    @Test
+    void updatedItemKeepsItsPosition() {
+
+        Item renamed = item("2", "Books", 2);
+        renamed.setTitle("Renamed");
+
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.UPDATED, renamed));
+
+        List<ItemCard> cards = feed.get(ItemCacheUpdater.CARD, List.class);
+
+        assertThat(cards).extracting(ItemCard::id).containsExactly("3", "2", "1");
+        assertThat(cards.get(1).title()).isEqualTo("Renamed");
+    }
+
+    @Test
+    void categoryChangeMovesTheItemBetweenLists() {
+
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.UPDATED, item("2", "Cycles", 2)));
+
+        assertThat(cardIds(byCategory, ItemCacheUpdater.categoryKey(ItemCacheUpdater.CARD, "Books")))
+                .containsExactly("3");
+    }
+
+    @Test
+    void soldAndDeletedItemsAreDropped() {
+
+        Item sold = item("3", "Books", 3);
+        sold.setAvailable(false);
+
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.SOLD, sold));
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.DELETED, item("1", "Cycles", 1)));
+
+        assertThat(cardIds(feed, ItemCacheUpdater.CARD)).containsExactly("2");
+    }
+
+    @Test
+    void uncachedListsStayUncached() {
+
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.CREATED, item("4", "Lamps", 4)));
+
+        assertThat(feed.get(ItemCacheUpdater.FULL)).isNull();
+        assertThat(byCategory.get(ItemCacheUpdater.categoryKey(ItemCacheUpdater.CARD, "Lamps"))).isNull();
+    }
+
+    @Test
+    void patchedListIsACopy() {
+
+        List<?> before = feed.get(ItemCacheUpdater.CARD, List.class);
+
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.CREATED, item("4", "Books", 4)));
+
+        // readers holding the old list never see it change
+        assertThat(before).hasSize(3);
+        assertThat(feed.get(ItemCacheUpdater.CARD, List.class)).hasSize(4);
+    }
+
+    @Test
+    void fullViewIsPatchedToo() {
+
+        feed.put(ItemCacheUpdater.FULL, List.of(ItemResponse.fromItem(item("1", "Cycles", 1))));
+
+        updater.onItemEvent(new ItemEvent(ItemEvent.Type.CREATED, item("2", "Books", 2)));
+
+        List<ItemResponse> responses = feed.get(ItemCacheUpdater.FULL, List.class);
+
+        assertThat(responses).extracting(ItemResponse::getId).containsExactly("2", "1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> cardIds(Cache cache, String key) {
+
+        List<ItemCard> cards = cache.get(key, List.class);
+
+        return cards.stream().map(ItemCard::id).toList();
+    }
+
+    // hours after a fixed start, so the feed order is known
+    private static Item item(String id, String category, double hours) {
+
+        return Item.builder()
+                .id(id)
+                .title("Item " + id)
+                .category(category)
+                .available(true)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes((long) (hours * 60)))
+                .build();
+    }
+}
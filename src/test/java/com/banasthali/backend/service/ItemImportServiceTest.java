@@ -0,0 +1,203 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.BulkImportResult;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemImportServiceTest {
+
+    private static final String VALID =
+            "{\"title\":\"Kettle\",\"description\":\"1.5 litre\",\"price\":450,"
+                    + "\"sellerPhone\":\"9000000000\",\"sellerHostel\":\"Shanti Kunj\"}";
+
+    private static ValidatorFactory validatorFactory;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    private final BulkOperations bulkOperations = mock(BulkOperations.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    // every batch handed to insert, copied before the service clears it
+    private final List<List<Item>> inserted = new ArrayList<>();
+
+    private ItemImportService service;
+
+    private final User seller = User.builder().id("seller-1").username("asha").build();
+
+    @BeforeAll
+    static void createValidator() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+
+        Validator validator = validatorFactory.getValidator();
+
+        service = new ItemImportService(mongoTemplate, new ObjectMapper(), validator, eventPublisher);
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class)).thenReturn(bulkOperations);
+
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            inserted.add(new ArrayList<>((List<Item>) invocation.getArgument(0)));
+            return bulkOperations;
+        });
+    }
+
+    @Test
+    void readsAJsonArray() throws IOException {
+
+        BulkImportResult result = importItems("[" + VALID + "," + VALID + "]");
+
+        assertThat(result.created()).isEqualTo(2);
+        assertThat(result.failed()).isZero();
+        assertThat(result.error()).isNull();
+        assertThat(result.results()).extracting(BulkImportResult.ItemResult::status)
+                .containsOnly(BulkImportResult.Status.CREATED);
+
+        Item item = inserted.get(0).get(0);
+
+        assertThat(item.getSellerId()).isEqualTo("seller-1");
+        assertThat(item.getSellerName()).isEqualTo("asha");
+        assertThat(item.isAvailable()).isTrue();
+        assertThat(result.results().get(0).id()).isEqualTo(item.getId());
+
+        verify(eventPublisher, times(2)).publishEvent(any(ItemEvent.class));
+    }
+
+    @Test
+    void readsNdjson() throws IOException {
+
+        BulkImportResult result = importItems(VALID + "\n" + VALID + "\n\n" + VALID + "\n");
+
+        assertThat(result.created()).isEqualTo(3);
+        assertThat(result.results()).extracting(BulkImportResult.ItemResult::index).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void invalidItemsAreReportedAndTheRestWritten() throws IOException {
+
+        String noPrice = "{\"title\":\"Lamp\",\"description\":\"LED\",\"sellerPhone\":\"9\",\"sellerHostel\":\"H\"}";
+        String noHostel = "{\"title\":\"Lamp\",\"description\":\"LED\",\"price\":10,\"sellerPhone\":\"9\"}";
+
+        BulkImportResult result = importItems("[" + VALID + "," + noPrice + ",null," + noHostel + "]");
+
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.failed()).isEqualTo(3);
+
+        List<BulkImportResult.ItemResult> results = result.results();
+
+        assertThat(results).extracting(BulkImportResult.ItemResult::index).containsExactly(0, 1, 2, 3);
+        assertThat(results.get(1).errors()).containsExactly("Price is required");
+        assertThat(results.get(2).errors()).containsExactly("Item must be a JSON object");
+        assertThat(results.get(3).errors()).containsExactly("Seller hostel is required");
+        assertThat(results.get(1).status()).isEqualTo(BulkImportResult.Status.INVALID);
+    }
+
+    @Test
+    void malformedJsonStopsReadingButKeepsEarlierItems() throws IOException {
+
+        BulkImportResult result = importItems("[" + VALID + ", {\"title\": ]");
+
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.error()).startsWith("Malformed item at index 1");
+    }
+
+    @Test
+    void wrongShapeStopsReading() throws IOException {
+
+        BulkImportResult result = importItems("[" + VALID + ", 42, " + VALID + "]");
+
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.error()).startsWith("Malformed item at index 1");
+    }
+
+    @Test
+    void stopsAtTheItemLimit() throws IOException {
+
+        StringBuilder body = new StringBuilder();
+
+        for (int i = 0; i <= ItemImportService.MAX_ITEMS; i++) {
+            body.append(VALID).append('\n');
+        }
+
+        BulkImportResult result = importItems(body.toString());
+
+        assertThat(result.created()).isEqualTo(ItemImportService.MAX_ITEMS);
+        assertThat(result.error()).contains("At most " + ItemImportService.MAX_ITEMS);
+        assertThat(inserted).hasSize(10).allSatisfy(batch -> assertThat(batch).hasSize(100));
+    }
+
+    @Test
+    void writeErrorsAreReportedPerItem() throws IOException {
+
+        BulkWriteError duplicate = new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1);
+
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("bulk write failed",
+                new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(duplicate), null, new ServerAddress(), Set.of())));
+
+        BulkImportResult result = importItems("[" + VALID + "," + VALID + "]");
+
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.results().get(1).status()).isEqualTo(BulkImportResult.Status.FAILED);
+        assertThat(result.results().get(1).errors()).containsExactly("E11000 duplicate key");
+
+        verify(eventPublisher, times(1)).publishEvent(any(ItemEvent.class));
+    }
+
+    @Test
+    void failedBatchFailsEveryItemInIt() throws IOException {
+
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("connection reset"));
+
+        BulkImportResult result = importItems("[" + VALID + "," + VALID + "]");
+
+        assertThat(result.created()).isZero();
+        assertThat(result.results()).extracting(BulkImportResult.ItemResult::status)
+                .containsOnly(BulkImportResult.Status.FAILED);
+    }
+
+    private BulkImportResult importItems(String body) throws IOException {
+        return service.importItems(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), seller);
+    }
+}
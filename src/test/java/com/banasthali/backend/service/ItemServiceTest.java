@@ -0,0 +1,129 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.ItemRequest;
+import com.banasthali.backend.dto.ItemResponse;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.User;
+import com.banasthali.backend.repository.ItemRepository;
+import com.banasthali.backend.service.search.ItemFacetIndex;
+import com.banasthali.backend.service.search.ItemFuzzyIndex;
+import com.banasthali.backend.service.search.ItemIndexer;
+import com.banasthali.backend.service.search.ItemSearchIndex;
+import com.banasthali.backend.service.search.ItemSuggestIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemServiceTest {
+
+    private final ItemRepository itemRepository = mock(ItemRepository.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final ItemService service = new ItemService(
+            itemRepository,
+            mock(FileStorageService.class),
+            mock(ItemIndexer.class),
+            mock(ItemSearchIndex.class),
+            mock(ItemFuzzyIndex.class),
+            mock(ItemSuggestIndex.class),
+            mock(ItemFacetIndex.class),
+            eventPublisher
+    );
+
+    private final User seller = User.builder().id("seller-1").build();
+
+    @BeforeEach
+    void setUp() {
+
+        // read before the variant job finished
+        when(itemRepository.findById("item-1")).thenReturn(Optional.of(item(null, true)));
+    }
+
+    @Test
+    void editKeepsVariantsWrittenInTheBackground() {
+
+        when(itemRepository.updateListing("item-1", "Cycle", null, BigDecimal.valueOf(900), null))
+                .thenReturn(Optional.of(item("/uploads/abc_thumb.jpg", true)));
+
+        ItemRequest request = ItemRequest.builder().title("Cycle").price(BigDecimal.valueOf(900)).build();
+
+        ItemResponse response = service.updateItem("item-1", request, seller);
+
+        assertThat(response.getThumbnailUrl()).isEqualTo("/uploads/abc_thumb.jpg");
+        assertThat(published().getType()).isEqualTo(ItemEvent.Type.UPDATED);
+        assertThat(published().getItem().getThumbnailUrl()).isEqualTo("/uploads/abc_thumb.jpg");
+
+        verify(itemRepository, never()).save(any(Item.class));
+    }
+
+    @Test
+    void saleKeepsVariantsWrittenInTheBackground() {
+
+        when(itemRepository.markSold("item-1")).thenReturn(Optional.of(item("/uploads/abc_thumb.jpg", false)));
+
+        ItemResponse response = service.markAsSold("item-1", seller);
+
+        assertThat(response.getThumbnailUrl()).isEqualTo("/uploads/abc_thumb.jpg");
+        assertThat(published().getType()).isEqualTo(ItemEvent.Type.SOLD);
+        assertThat(published().getItem().isAvailable()).isFalse();
+
+        verify(itemRepository, never()).save(any(Item.class));
+    }
+
+    @Test
+    void otherSellersCannotEdit() {
+
+        User other = User.builder().id("seller-2").build();
+
+        assertThatThrownBy(() -> service.markAsSold("item-1", other))
+                .hasMessage("You can only update your own items");
+
+        verify(itemRepository, never()).markSold(anyString());
+    }
+
+    @Test
+    void itemDeletedMeanwhileIsNotFound() {
+
+        when(itemRepository.markSold("item-1")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.markAsSold("item-1", seller))
+                .hasMessage("Item not found");
+    }
+
+    private ItemEvent published() {
+
+        ArgumentCaptor<ItemEvent> event = ArgumentCaptor.forClass(ItemEvent.class);
+
+        verify(eventPublisher).publishEvent(event.capture());
+
+        return event.getValue();
+    }
+
+    private static Item item(String thumbnailUrl, boolean available) {
+
+        return Item.builder()
+                .id("item-1")
+                .title("Cycle")
+                .price(BigDecimal.valueOf(1000))
+                .imageUrl("/uploads/abc.png")
+                .thumbnailUrl(thumbnailUrl)
+                .sellerId("seller-1")
+                .available(available)
+                .build();
+    }
+}
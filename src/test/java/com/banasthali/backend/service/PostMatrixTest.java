@@ -0,0 +1,125 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.dto.PostDistanceMatrix;
+import com.banasthali.backend.model.Post;
+import com.banasthali.backend.repository.PostRepository;
+import com.banasthali.backend.util.GeoDistance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostMatrixTest {
+
+    private static final Post GATE = post("gate", 26.4025, 75.8741);
+    private static final Post LIBRARY = post("library", 26.4051, 75.8779);
+    private static final Post HOSTEL = post("hostel", 26.3990, 75.8702);
+
+    // added without coordinates
+    private static final Post CANTEEN = post("canteen", null, null);
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+
+    private final PostMatrix postMatrix = new PostMatrix(postRepository);
+
+    @BeforeEach
+    void build() {
+
+        when(postRepository.findAll()).thenReturn(List.of(GATE, LIBRARY, CANTEEN, HOSTEL));
+
+        postMatrix.rebuild();
+    }
+
+    @Test
+    void distancesAreGreatCircleMeters() {
+
+        double expected = GeoDistance.meters(26.4025, 75.8741, 26.4051, 75.8779);
+
+        assertThat(postMatrix.distanceMeters("gate", "library")).isCloseTo(expected, within(1e-9));
+        assertThat(postMatrix.distanceMeters("library", "gate")).isEqualTo(postMatrix.distanceMeters("gate", "library"));
+        assertThat(postMatrix.distanceMeters("hostel", "hostel")).isZero();
+    }
+
+    @Test
+    void etaIsDistanceAtTheAverageBusSpeed() {
+
+        double meters = postMatrix.distanceMeters("gate", "hostel");
+
+        // 25 km/h is 416.7 m a minute
+        assertThat(postMatrix.etaMinutes("gate", "hostel")).isCloseTo(meters / (25_000.0 / 60), within(1e-9));
+        assertThat(PostMatrix.etaMinutes(25_000)).isCloseTo(60, within(1e-9));
+    }
+
+    @Test
+    void postsWithoutCoordinatesAreLeftOut() {
+
+        assertThat(postMatrix.distanceMeters("gate", "canteen")).isNaN();
+        assertThat(postMatrix.etaMinutes("canteen", "gate")).isNaN();
+        assertThat(postMatrix.distanceMeters("gate", "unknown")).isNaN();
+
+        assertThat(postMatrix.view().postIds()).containsExactly("gate", "library", "hostel");
+    }
+
+    @Test
+    void coordinatesOfKnownPosts() {
+
+        assertThat(postMatrix.coordinates("library")).contains(new PostMatrix.Coordinates(26.4051, 75.8779));
+        assertThat(postMatrix.coordinates("canteen")).isEmpty();
+        assertThat(postMatrix.coordinates("unknown")).isEmpty();
+    }
+
+    @Test
+    void viewIsRowMajor() {
+
+        PostDistanceMatrix view = postMatrix.view();
+
+        int n = view.postIds().size();
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+
+                String from = view.postIds().get(i);
+                String to = view.postIds().get(j);
+
+                assertThat(view.distanceMeters()[i * n + j]).isEqualTo(postMatrix.distanceMeters(from, to));
+                assertThat(view.etaMinutes()[i * n + j]).isEqualTo(postMatrix.etaMinutes(from, to));
+
+            }
+        }
+    }
+
+    @Test
+    void rebuildSwapsInTheNewSetOfPosts() {
+
+        PostDistanceMatrix before = postMatrix.view();
+
+        when(postRepository.findAll()).thenReturn(List.of(GATE, post("canteen", 26.4000, 75.8750)));
+
+        postMatrix.rebuild();
+
+        assertThat(postMatrix.distanceMeters("gate", "canteen")).isPositive();
+        assertThat(postMatrix.distanceMeters("gate", "library")).isNaN();
+
+        // a reader holding the old view still sees a complete matrix
+        assertThat(before.postIds()).hasSize(3);
+        assertThat(before.distanceMeters()).hasSize(9);
+    }
+
+    @Test
+    void emptyUntilBuilt() {
+
+        PostMatrix unbuilt = new PostMatrix(postRepository);
+
+        assertThat(unbuilt.view().postIds()).isEmpty();
+        assertThat(unbuilt.distanceMeters("gate", "library")).isNaN();
+    }
+
+    private static Post post(String id, Double latitude, Double longitude) {
+        return Post.builder().id(id).name(id).latitude(latitude).longitude(longitude).build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.banasthali.backend.service;
+
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.UploadBlob;
+import com.banasthali.backend.service.storage.UploadStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadGarbageCollectorTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    private final UploadStorage uploadStorage = mock(UploadStorage.class);
+
+    private final FileStorageService fileStorageService =
+            new FileStorageService(mongoTemplate, uploadStorage, mock(UploadFileIndex.class));
+
+    private final UploadGarbageCollector collector =
+            new UploadGarbageCollector(mongoTemplate, uploadStorage, fileStorageService, new SimpleMeterRegistry());
+
+    // when the blob of abc.png was last acquired
+    private LocalDateTime lastAcquiredAt;
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        ReflectionTestUtils.setField(collector, "minAge", Duration.ofHours(1));
+        ReflectionTestUtils.setField(collector, "batchSize", 50);
+        ReflectionTestUtils.setField(collector, "batchPause", Duration.ZERO);
+        ReflectionTestUtils.setField(collector, "maxPerRun", 1000);
+
+        // the file itself is old: an earlier upload of the same image
+        long yesterday = System.currentTimeMillis() - Duration.ofDays(1).toMillis();
+
+        when(uploadStorage.list("")).thenAnswer(invocation ->
+                Stream.of(new UploadStorage.StoredObject("abc.png", 100, yesterday, "image/png")));
+
+        // what Mongo does with the claim: a blob acquired after the cutoff
+        // does not match, so the upsert collides with it
+        when(mongoTemplate.findAndModify(
+                any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(UploadBlob.class)
+        )).thenAnswer(invocation -> {
+
+            Document lastAcquired = (Document) invocation.<Query>getArgument(0).getQueryObject().get("lastAcquiredAt");
+
+            LocalDateTime acquiredSince = (LocalDateTime) ((Document) lastAcquired.get("$not")).get("$gt");
+
+            if (lastAcquiredAt.isAfter(acquiredSince)) {
+                throw new DuplicateKeyException("E11000");
+            }
+
+            return UploadBlob.builder().id("abc.png").lastAcquiredAt(lastAcquiredAt).build();
+
+        });
+    }
+
+    @Test
+    void uploadDeduplicatedJustBeforeTheMarkIsKept() throws IOException {
+
+        // acquired a minute before the mark; its item is saved only after
+        // mark() read the items, so no item points at the file yet
+        lastAcquiredAt = LocalDateTime.now().minusMinutes(1);
+
+        when(mongoTemplate.stream(any(Query.class), eq(Item.class))).thenAnswer(invocation -> Stream.empty());
+
+        collector.collect();
+
+        verify(uploadStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void imageAcquiredLongAgoIsCollected() throws IOException {
+
+        lastAcquiredAt = LocalDateTime.now().minusDays(1);
+
+        when(mongoTemplate.stream(any(Query.class), eq(Item.class))).thenAnswer(invocation -> Stream.empty());
+
+        collector.collect();
+
+        verify(uploadStorage).delete("abc.png");
+    }
+
+    @Test
+    void imageAnItemUsesIsKept() throws IOException {
+
+        lastAcquiredAt = LocalDateTime.now().minusDays(1);
+
+        Item item = Item.builder().id("item-1").imageUrl("/uploads/abc.png").build();
+
+        when(mongoTemplate.stream(any(Query.class), eq(Item.class))).thenAnswer(invocation -> Stream.of(item));
+
+        collector.collect();
+
+        verify(uploadStorage, never()).delete(anyString());
+    }
+}
@@ -0,0 +1,238 @@
+package com.banasthali.backend.service.routing;
+
+import com.banasthali.backend.service.PostMatrix;
+import com.banasthali.backend.util.GeoDistance;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class RoadRouterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // gate -> library is straight but slow; the ring road via the lake is
+    // longer and faster. The hostel lane is one way out of the library, and
+    // the farm is not connected to anything.
+    private static final String GRAPH = """
+            {
+              "nodes": [
+                { "id": "gate",    "latitude": 26.4000, "longitude": 75.8700 },
+                { "id": "library", "latitude": 26.4100, "longitude": 75.8700 },
+                { "id": "lake",    "latitude": 26.4050, "longitude": 75.8760 },
+                { "id": "hostel",  "latitude": 26.4100, "longitude": 75.8650 },
+                { "id": "farm",    "latitude": 26.3900, "longitude": 75.8600 }
+              ],
+              "edges": [
+                { "from": "gate",    "to": "library", "speedKmh": 10 },
+                { "from": "gate",    "to": "lake",    "speedKmh": 40 },
+                { "from": "lake",    "to": "library", "speedKmh": 40, "lengthMeters": 900 },
+                { "from": "library", "to": "hostel",  "oneWay": true }
+              ]
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private RoadRouter router;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        router = router(GRAPH, 150);
+    }
+
+    @Test
+    void takesTheFasterLongerRoad() {
+
+        RoadRouter.Route route = route("gate", "library");
+
+        double toLake = GeoDistance.meters(26.4000, 75.8700, 26.4050, 75.8760);
+
+        assertThat(route.meters()).isCloseTo(toLake + 900, within(1e-6));
+        assertThat(route.seconds()).isCloseTo((toLake + 900) / (40 / 3.6), within(1e-6));
+
+        // and it beats the straight road at 10 km/h
+        double straight = GeoDistance.meters(26.4000, 75.8700, 26.4100, 75.8700);
+
+        assertThat(route.seconds()).isLessThan(straight / (10 / 3.6));
+    }
+
+    @Test
+    void edgesWithoutSpeedUseTheAverageBusSpeed() {
+
+        double lane = GeoDistance.meters(26.4100, 75.8700, 26.4100, 75.8650);
+
+        assertThat(route("library", "hostel").seconds())
+                .isCloseTo(lane / (PostMatrix.AVG_SPEED_KMH / 3.6), within(1e-6));
+    }
+
+    @Test
+    void oneWayRoadsAreNotDrivenBackwards() {
+
+        assertThat(router.route(26.4100, 75.8700, 26.4100, 75.8650)).isPresent();
+        assertThat(router.route(26.4100, 75.8650, 26.4100, 75.8700)).isEmpty();
+    }
+
+    @Test
+    void disconnectedRoadsHaveNoRoute() {
+        assertThat(router.route(26.3900, 75.8600, 26.4000, 75.8700)).isEmpty();
+    }
+
+    @Test
+    void sameNodeIsZero() {
+
+        RoadRouter.Route route = route("lake", "lake");
+
+        assertThat(route.meters()).isZero();
+        assertThat(route.seconds()).isZero();
+    }
+
+    @Test
+    void legsOnAndOffTheRoadAreAdded() {
+
+        // about 55 m north of the gate
+        double latitude = 26.4005;
+
+        double offRoad = GeoDistance.meters(latitude, 75.8700, 26.4000, 75.8700);
+
+        RoadRouter.Route fromNode = route("gate", "lake");
+        RoadRouter.Route fromNearby = router.route(latitude, 75.8700, 26.4050, 75.8760).orElseThrow();
+
+        assertThat(fromNearby.meters()).isCloseTo(fromNode.meters() + offRoad, within(1e-6));
+        assertThat(fromNearby.seconds())
+                .isCloseTo(fromNode.seconds() + offRoad / (PostMatrix.AVG_SPEED_KMH / 3.6), within(1e-6));
+    }
+
+    @Test
+    void pointsFarFromAnyRoadHaveNoRoute() {
+
+        // 300 m east of the gate, more than max-snap-meters
+        assertThat(router.route(26.4000, 75.8730, 26.4100, 75.8700)).isEmpty();
+
+        // in the middle of nowhere
+        assertThat(router.route(27.0, 76.0, 26.4100, 75.8700)).isEmpty();
+    }
+
+    @Test
+    void snapFindsTheNearestNodeAcrossCells() throws IOException {
+
+        RoadGraph graph = RoadGraph.read(write(GRAPH), MAPPER, PostMatrix.AVG_SPEED_KMH, 150);
+
+        double[][] nodes = {
+                {26.4000, 75.8700}, {26.4100, 75.8700}, {26.4050, 75.8760}, {26.4100, 75.8650}, {26.3900, 75.8600}
+        };
+
+        Random random = new Random(3);
+
+        for (int i = 0; i < 5000; i++) {
+
+            double[] near = nodes[random.nextInt(nodes.length)];
+
+            // up to about 200 m away in each direction
+            double latitude = near[0] + (random.nextDouble() - 0.5) * 0.0036;
+            double longitude = near[1] + (random.nextDouble() - 0.5) * 0.0036;
+
+            int nearest = -1;
+            double nearestMeters = Double.POSITIVE_INFINITY;
+
+            for (int node = 0; node < nodes.length; node++) {
+
+                double meters = GeoDistance.meters(latitude, longitude, nodes[node][0], nodes[node][1]);
+
+                if (meters < nearestMeters) {
+                    nearest = node;
+                    nearestMeters = meters;
+                }
+
+            }
+
+            RoadGraph.Snap snap = graph.snap(latitude, longitude);
+
+            // every node within one cell is found
+            if (nearestMeters <= 150) {
+                assertThat(snap).isNotNull();
+                assertThat(snap.node()).isEqualTo(nearest);
+                assertThat(snap.meters()).isCloseTo(nearestMeters, within(1e-9));
+            }
+
+        }
+    }
+
+    @Test
+    void withoutAGraphEveryRouteIsEmpty() {
+
+        RoadRouter none = new RoadRouter(MAPPER, "", 150, 16);
+
+        assertThat(none.enabled()).isFalse();
+        assertThat(none.route(26.4000, 75.8700, 26.4100, 75.8700)).isEmpty();
+    }
+
+    @Test
+    void brokenGraphFileFallsBackToStraightLines() throws IOException {
+
+        RoadRouter broken = router("""
+                { "nodes": [ { "id": "gate", "latitude": 26.4, "longitude": 75.87 } ],
+                  "edges": [ { "from": "gate", "to": "nowhere" } ] }
+                """, 150);
+
+        assertThat(broken.enabled()).isFalse();
+    }
+
+    @Test
+    void invalidGraphsAreRejected() throws IOException {
+
+        Path duplicate = write("""
+                { "nodes": [ { "id": "gate", "latitude": 26.4, "longitude": 75.87 },
+                             { "id": "gate", "latitude": 26.5, "longitude": 75.87 } ] }
+                """);
+
+        Path standstill = write("""
+                { "nodes": [ { "id": "a", "latitude": 26.4, "longitude": 75.87 },
+                             { "id": "b", "latitude": 26.5, "longitude": 75.87 } ],
+                  "edges": [ { "from": "a", "to": "b", "speedKmh": 0 } ] }
+                """);
+
+        Path empty = write("{ \"nodes\": [] }");
+
+        for (Path file : new Path[] {duplicate, standstill, empty}) {
+            assertThatThrownBy(() -> RoadGraph.read(file, MAPPER, 25, 150))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private RoadRouter.Route route(String from, String to) {
+
+        double[] a = coordinates(from);
+        double[] b = coordinates(to);
+
+        return router.route(a[0], a[1], b[0], b[1]).orElseThrow();
+    }
+
+    private static double[] coordinates(String node) {
+        return switch (node) {
+            case "gate" -> new double[] {26.4000, 75.8700};
+            case "library" -> new double[] {26.4100, 75.8700};
+            case "lake" -> new double[] {26.4050, 75.8760};
+            case "hostel" -> new double[] {26.4100, 75.8650};
+            default -> throw new IllegalArgumentException(node);
+        };
+    }
+
+    private RoadRouter router(String json, double maxSnapMeters) throws IOException {
+        return new RoadRouter(MAPPER, write(json).toString(), maxSnapMeters, 16);
+    }
+
+    private Path write(String json) throws IOException {
+        return Files.writeString(Files.createTempFile(tempDir, "graph", ".json"), json);
+    }
+}
@@ -0,0 +1,278 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.dto.ItemCard;
+import com.banasthali.backend.dto.ItemFacets;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.repository.ItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemFacetIndexTest {
+
+    private static final String[] CATEGORIES = {"Books", "books ", "Cycles", "Electronics", null, " "};
+
+    private final ItemRepository itemRepository = mock(ItemRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ItemFacetIndex index = new ItemFacetIndex(itemRepository, meterRegistry);
+
+    // what Mongo holds after each event
+    private final Map<String, Item> stored = new LinkedHashMap<>();
+
+    @Test
+    void countsFollowCreateUpdateSoldAndDelete() {
+
+        index.rebuild(List.of());
+
+        create(item("1", "Books", 50));
+        create(item("2", "books", 150));
+        create(item("3", "Cycles", 1500));
+        create(item("4", null, null));
+
+        assertMatchesRecount();
+
+        assertThat(index.facets().total()).isEqualTo(4);
+        assertThat(index.facets().categories()).containsExactly(
+                new ItemFacets.CategoryCount("Books", 2),
+                new ItemFacets.CategoryCount("Cycles", 1)
+        );
+        assertThat(bucketCounts()).containsExactly(1, 1, 0, 1, 0);
+
+        // moved to another category and price bucket
+        update(item("2", "Electronics", 6000));
+
+        assertMatchesRecount();
+        assertThat(bucketCounts()).containsExactly(1, 0, 0, 1, 1);
+
+        sell("3");
+
+        assertMatchesRecount();
+        assertThat(index.facets().categories()).extracting(ItemFacets.CategoryCount::category)
+                .containsExactly("Books", "Electronics");
+
+        delete("1");
+        delete("3");
+
+        assertMatchesRecount();
+        assertThat(index.facets().total()).isEqualTo(2);
+        assertThat(bucketCounts()).containsExactly(0, 0, 0, 0, 1);
+    }
+
+    @Test
+    void bucketBoundsAreLowerInclusive() {
+
+        index.rebuild(List.of(
+                item("1", null, 0),
+                item("2", null, 99.99),
+                item("3", null, 100),
+                item("4", null, 499.99),
+                item("5", null, 500),
+                item("6", null, 1000),
+                item("7", null, 5000)
+        ));
+
+        assertThat(bucketCounts()).containsExactly(2, 2, 1, 1, 1);
+    }
+
+    @Test
+    void repeatedAndOutOfOrderEventsDoNotDrift() {
+
+        index.rebuild(List.of());
+
+        create(item("1", "Books", 50));
+
+        // delivered twice
+        index.apply(new ItemEvent(ItemEvent.Type.CREATED, stored.get("1")));
+        index.apply(new ItemEvent(ItemEvent.Type.UPDATED, stored.get("1")));
+
+        // an update of an item that is already sold
+        sell("1");
+        index.apply(new ItemEvent(ItemEvent.Type.UPDATED, stored.get("1")));
+
+        // a delete of an item never counted
+        index.apply(new ItemEvent(ItemEvent.Type.DELETED, item("9", "Books", 50)));
+
+        assertMatchesRecount();
+        assertThat(index.facets().total()).isZero();
+    }
+
+    @Test
+    void randomEventsMatchARecount() {
+
+        Random random = new Random(11);
+
+        List<Item> initial = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+
+            Item item = randomItem(random, "item-" + i);
+
+            initial.add(item);
+            stored.put(item.getId(), item);
+
+        }
+
+        index.rebuild(initial.stream().filter(Item::isAvailable).toList());
+
+        for (int step = 0; step < 2000; step++) {
+
+            String id = "item-" + random.nextInt(80);
+
+            Item current = stored.get(id);
+
+            if (current == null) {
+                create(randomItem(random, id));
+            } else {
+                switch (random.nextInt(3)) {
+                    case 0 -> update(randomItem(random, id));
+                    case 1 -> sell(id);
+                    default -> delete(id);
+                }
+            }
+
+            if (step % 100 == 0) {
+                assertMatchesRecount();
+            }
+
+        }
+
+        assertMatchesRecount();
+    }
+
+    @Test
+    void reconcileFindsNoDriftAfterEvents() {
+
+        index.rebuild(List.of());
+
+        create(item("1", "Books", 50));
+        create(item("2", "Cycles", 1500));
+        update(item("2", "Books", 700));
+        sell("1");
+
+        reconcile();
+
+        assertThat(meterRegistry.find("items.facets.drift").counter()).isNull();
+        assertMatchesRecount();
+    }
+
+    @Test
+    void reconcileCorrectsAMissedEvent() {
+
+        index.rebuild(List.of());
+
+        create(item("1", "Books", 50));
+
+        // written without an event reaching this index
+        stored.put("2", item("2", "Cycles", 1500));
+
+        reconcile();
+
+        // one item, one category and one bucket off
+        assertThat(meterRegistry.get("items.facets.drift").counter().count()).isEqualTo(3);
+        assertMatchesRecount();
+    }
+
+    private void create(Item item) {
+
+        stored.put(item.getId(), item);
+
+        index.apply(new ItemEvent(ItemEvent.Type.CREATED, item));
+    }
+
+    private void update(Item item) {
+
+        item.setAvailable(stored.get(item.getId()).isAvailable());
+
+        stored.put(item.getId(), item);
+
+        index.apply(new ItemEvent(ItemEvent.Type.UPDATED, item));
+    }
+
+    private void sell(String id) {
+
+        Item item = stored.get(id);
+
+        item.setAvailable(false);
+
+        index.apply(new ItemEvent(ItemEvent.Type.SOLD, item));
+    }
+
+    private void delete(String id) {
+        index.apply(new ItemEvent(ItemEvent.Type.DELETED, stored.remove(id)));
+    }
+
+    private void reconcile() {
+
+        when(itemRepository.findByAvailableTrueOrderByCreatedAtDesc(ItemCard.class)).thenReturn(
+                available().stream().map(ItemCard::fromItem).toList());
+
+        index.reconcile();
+    }
+
+    private void assertMatchesRecount() {
+
+        ItemFacetIndex recount = new ItemFacetIndex(itemRepository, new SimpleMeterRegistry());
+
+        recount.rebuild(available());
+
+        ItemFacets expected = recount.facets();
+        ItemFacets actual = index.facets();
+
+        assertThat(actual.total()).isEqualTo(expected.total());
+        assertThat(actual.priceBuckets()).isEqualTo(expected.priceBuckets());
+
+        // the display name is the first one seen, which can differ in case
+        assertThat(actual.categories()).extracting(count -> count.category().toLowerCase(Locale.ROOT) + "=" + count.count())
+                .containsExactlyInAnyOrderElementsOf(expected.categories().stream()
+                        .map(count -> count.category().toLowerCase(Locale.ROOT) + "=" + count.count())
+                        .toList());
+    }
+
+    private List<Item> available() {
+        return stored.values().stream().filter(Item::isAvailable).toList();
+    }
+
+    private List<Integer> bucketCounts() {
+        return index.facets().priceBuckets().stream().map(ItemFacets.PriceBucket::count).toList();
+    }
+
+    private static Item randomItem(Random random, String id) {
+
+        Item item = item(id, CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(8000));
+
+        item.setAvailable(random.nextInt(5) > 0);
+
+        if (random.nextInt(20) == 0) {
+            item.setPrice(null);
+        }
+
+        return item;
+    }
+
+    private static Item item(String id, String category, Number price) {
+
+        return Item.builder()
+                .id(id)
+                .title("Item " + id)
+                .category(category)
+                .price(price == null ? null : new BigDecimal(price.toString()))
+                .available(true)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
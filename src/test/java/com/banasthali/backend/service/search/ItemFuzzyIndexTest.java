@@ -0,0 +1,106 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemFuzzyIndexTest {
+
+    private final ItemFuzzyIndex index = new ItemFuzzyIndex();
+
+    @ParameterizedTest
+    @CsvSource({
+            "cycle, cycle, 0",
+            "cycel, cycle, 1",
+            "cycle, bicycle, 2",
+            "kitten, sitting, 3",
+            "abc, '', 3",
+            // OSA edits no substring twice, so this is 3, not the Damerau 2
+            "ca, abc, 3"
+    })
+    void editDistanceCountsAdjacentTranspositionsAsOneEdit(String a, String b, int expected) {
+
+        assertThat(ItemFuzzyIndex.editDistance(a, b)).isEqualTo(expected);
+        assertThat(ItemFuzzyIndex.editDistance(b, a)).isEqualTo(expected);
+    }
+
+    @Test
+    void distanceFallsBackToAPenalisedPrefix() {
+
+        // "calcu" is one edit away, plus the prefix penalty
+        assertThat(ItemFuzzyIndex.distance("calcy", "calculator")).isEqualTo(1.5);
+
+        assertThat(ItemFuzzyIndex.distance("cycle", "cycle")).isZero();
+    }
+
+    @Test
+    void findsMisspelledWords() {
+
+        index.rebuild(List.of(
+                item("1", "Hero cycle", null),
+                item("2", "Scientific calculator", null),
+                item("3", "Table lamp", null)
+        ));
+
+        assertThat(ids(index.search("cycel"))).containsExactly("1");
+        assertThat(ids(index.search("calcy"))).containsExactly("2");
+        assertThat(ids(index.search("lapm"))).containsExactly("3");
+    }
+
+    @Test
+    void tooManyEditsDoNotMatch() {
+
+        index.rebuild(List.of(item("1", "Cycle", null)));
+
+        assertThat(index.search("bottle")).isEmpty();
+        assertThat(index.search("cxxle")).isEmpty();
+    }
+
+    @Test
+    void exactWordAndTitleHitsRankFirst() {
+
+        index.rebuild(List.of(
+                item("1", "Notebook", "Comes with a lamp"),
+                item("2", "Lamp", null),
+                item("3", "Lamps", null)
+        ));
+
+        assertThat(ids(index.search("lamp"))).containsExactly("2", "3", "1");
+    }
+
+    @Test
+    void removedItemsLeaveTheVocabulary() {
+
+        index.rebuild(List.of(item("1", "Guitar", null)));
+
+        index.apply(new ItemEvent(ItemEvent.Type.DELETED, item("1", "Guitar", null)));
+
+        assertThat(index.search("guitra")).isEmpty();
+
+        index.apply(new ItemEvent(ItemEvent.Type.CREATED, item("2", "Guitar", null)));
+
+        assertThat(ids(index.search("guitra"))).containsExactly("2");
+    }
+
+    private static Item item(String id, String title, String description) {
+
+        return Item.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .available(true)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .build();
+    }
+
+    private static List<String> ids(List<Item> items) {
+        return items.stream().map(Item::getId).toList();
+    }
+}
@@ -0,0 +1,44 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.repository.ItemRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemIndexerTest {
+
+    @Test
+    void eventDuringTheLoadSurvivesTheRebuild() {
+
+        ItemRepository itemRepository = mock(ItemRepository.class);
+
+        ItemSearchIndex index = new ItemSearchIndex();
+
+        ItemIndexer indexer = new ItemIndexer(itemRepository, List.of(index));
+
+        Item loaded = item("1", "Kettle");
+        Item createdDuringLoad = item("2", "Toaster");
+
+        // the item is saved after Mongo was read, before the indexes are rebuilt
+        when(itemRepository.findByAvailableTrueOrderByCreatedAtDesc()).thenAnswer(invocation -> {
+            indexer.onItemEvent(new ItemEvent(ItemEvent.Type.CREATED, createdDuringLoad));
+            return List.of(loaded);
+        });
+
+        indexer.rebuildAll();
+
+        assertThat(indexer.isReady()).isTrue();
+        assertThat(index.search("toaster")).extracting(Item::getId).containsExactly("2");
+        assertThat(index.search("kettle")).extracting(Item::getId).containsExactly("1");
+    }
+
+    private static Item item(String id, String title) {
+        return Item.builder().id(id).title(title).available(true).build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemSearchIndexTest {
+
+    private final ItemSearchIndex index = new ItemSearchIndex();
+
+    @Test
+    void titleMatchOutranksDescriptionMatch() {
+
+        index.rebuild(List.of(
+                item("1", "Study table", "Comes with a lamp", "Furniture"),
+                item("2", "Desk lamp", "Bright LED", "Electronics")
+        ));
+
+        assertThat(ids(index.search("lamp"))).containsExactly("2", "1");
+    }
+
+    @Test
+    void exactWordOutranksPrefixMatch() {
+
+        index.rebuild(List.of(
+                item("1", "Calculator", "Scientific", "Electronics"),
+                item("2", "Calc notes", "Semester one", "Books")
+        ));
+
+        assertThat(ids(index.search("calc"))).containsExactly("2", "1");
+    }
+
+    @Test
+    void prefixFindsLongerWords() {
+
+        index.rebuild(List.of(item("1", "Scientific calculator", null, "Electronics")));
+
+        assertThat(ids(index.search("calcul"))).containsExactly("1");
+    }
+
+    @Test
+    void shorterDocumentRanksHigherForTheSameMatch() {
+
+        index.rebuild(List.of(
+                item("1", "Cycle", "Hero cycle with basket, lock, stand, bell and lights", "Vehicles"),
+                item("2", "Cycle", null, "Vehicles")
+        ));
+
+        assertThat(ids(index.search("cycle"))).containsExactly("2", "1");
+    }
+
+    @Test
+    void rareTermWeighsMoreThanCommonTerm() {
+
+        index.rebuild(List.of(
+                item("1", "Blue bottle", null, null),
+                item("2", "Blue pen", null, null),
+                item("3", "Blue bag", null, null),
+                item("4", "Red kettle", null, null)
+        ));
+
+        // "kettle" is in one item, "blue" in three
+        assertThat(ids(index.search("blue kettle")).get(0)).isEqualTo("4");
+    }
+
+    @Test
+    void stopWordsAloneMatchNothing() {
+
+        index.rebuild(List.of(item("1", "The book", null, null)));
+
+        assertThat(index.search("the of and")).isEmpty();
+    }
+
+    @Test
+    void eventsKeepTheIndexCurrent() {
+
+        index.rebuild(List.of(item("1", "Old kettle", null, null)));
+
+        index.apply(new ItemEvent(ItemEvent.Type.CREATED, item("2", "New kettle", null, null)));
+
+        assertThat(ids(index.search("kettle"))).containsExactlyInAnyOrder("1", "2");
+
+        index.apply(new ItemEvent(ItemEvent.Type.UPDATED, item("1", "Old toaster", null, null)));
+
+        assertThat(ids(index.search("kettle"))).containsExactly("2");
+        assertThat(ids(index.search("toaster"))).containsExactly("1");
+
+        Item sold = item("2", "New kettle", null, null);
+        sold.setAvailable(false);
+
+        index.apply(new ItemEvent(ItemEvent.Type.SOLD, sold));
+
+        assertThat(index.search("kettle")).isEmpty();
+
+        index.apply(new ItemEvent(ItemEvent.Type.DELETED, item("1", "Old toaster", null, null)));
+
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void replayingAnEventIsHarmless() {
+
+        Item kettle = item("1", "Kettle", null, null);
+
+        index.rebuild(List.of(kettle));
+
+        index.apply(new ItemEvent(ItemEvent.Type.CREATED, kettle));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(ids(index.search("kettle"))).containsExactly("1");
+    }
+
+    private static Item item(String id, String title, String description, String category) {
+
+        return Item.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .category(category)
+                .available(true)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .build();
+    }
+
+    private static List<String> ids(List<Item> items) {
+        return items.stream().map(Item::getId).toList();
+    }
+}
@@ -0,0 +1,136 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.dto.ItemSuggestion;
+import com.banasthali.backend.event.ItemEvent;
+import com.banasthali.backend.model.Item;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemSuggestIndexTest {
+
+    private final ItemSuggestIndex index = new ItemSuggestIndex();
+
+    @Test
+    void completesFromAnyWordStart() {
+
+        index.rebuild(List.of(item("1", "White lab coat", "Clothing", 1)));
+
+        assertThat(texts(index.suggest("coa", 10))).containsExactly("white lab coat");
+        assertThat(texts(index.suggest("lab c", 10))).containsExactly("white lab coat");
+        assertThat(texts(index.suggest("whi", 10))).containsExactly("white lab coat");
+    }
+
+    @Test
+    void categoriesCompleteOnlyFromTheirStart() {
+
+        index.rebuild(List.of(item("1", "Kettle", "Kitchen appliances", 1)));
+
+        assertThat(index.suggest("kit", 10))
+                .containsExactly(new ItemSuggestion("kitchen appliances", ItemSuggestion.Kind.CATEGORY, 1));
+        assertThat(index.suggest("appl", 10)).isEmpty();
+    }
+
+    @Test
+    void prefixIsNormalized() {
+
+        index.rebuild(List.of(item("1", "Hero-Cycle", null, 1)));
+
+        assertThat(texts(index.suggest("  HERO cy", 10))).containsExactly("hero cycle");
+    }
+
+    @Test
+    void newestListingRanksFirstAndListingsAreCounted() {
+
+        index.rebuild(List.of(
+                item("1", "Cycle lock", null, 1),
+                item("2", "Cycle", null, 2),
+                item("3", "Cycle", null, 3)
+        ));
+
+        assertThat(index.suggest("cyc", 10)).containsExactly(
+                new ItemSuggestion("cycle", ItemSuggestion.Kind.TITLE, 2),
+                new ItemSuggestion("cycle lock", ItemSuggestion.Kind.TITLE, 1)
+        );
+    }
+
+    @Test
+    void limitCapsTheResult() {
+
+        index.rebuild(List.of(
+                item("1", "Pen", null, 1),
+                item("2", "Pencil", null, 2),
+                item("3", "Pendrive", null, 3)
+        ));
+
+        assertThat(texts(index.suggest("pen", 2))).containsExactly("pendrive", "pencil");
+    }
+
+    @Test
+    void writesRefreshCachedCompletions() {
+
+        index.rebuild(List.of(item("1", "Cycle lock", null, 1)));
+
+        // fills the node caches along "cy"
+        assertThat(texts(index.suggest("cy", 10))).containsExactly("cycle lock");
+
+        index.apply(new ItemEvent(ItemEvent.Type.CREATED, item("2", "Cycle pump", null, 2)));
+
+        assertThat(texts(index.suggest("cy", 10))).containsExactly("cycle pump", "cycle lock");
+
+        Item sold = item("2", "Cycle pump", null, 2);
+        sold.setAvailable(false);
+
+        index.apply(new ItemEvent(ItemEvent.Type.SOLD, sold));
+
+        assertThat(texts(index.suggest("cy", 10))).containsExactly("cycle lock");
+    }
+
+    @Test
+    void removingTheLastListingDropsThePhrase() {
+
+        index.rebuild(List.of(item("1", "Guitar", null, 1)));
+
+        index.apply(new ItemEvent(ItemEvent.Type.DELETED, item("1", "Guitar", null, 1)));
+
+        assertThat(index.suggest("g", 10)).isEmpty();
+        assertThat(index.suggest("guitar", 10)).isEmpty();
+    }
+
+    @Test
+    void renamedItemMovesToItsNewTitle() {
+
+        index.rebuild(List.of(item("1", "Old kettle", null, 1)));
+
+        index.apply(new ItemEvent(ItemEvent.Type.UPDATED, item("1", "New kettle", null, 1)));
+
+        assertThat(texts(index.suggest("kett", 10))).containsExactly("new kettle");
+        assertThat(index.suggest("old", 10)).isEmpty();
+    }
+
+    @Test
+    void blankPrefixSuggestsNothing() {
+
+        index.rebuild(List.of(item("1", "Kettle", null, 1)));
+
+        assertThat(index.suggest(" - ", 10)).isEmpty();
+    }
+
+    private static Item item(String id, String title, String category, int day) {
+
+        return Item.builder()
+                .id(id)
+                .title(title)
+                .category(category)
+                .available(true)
+                .createdAt(LocalDateTime.of(2025, 1, day, 12, 0))
+                .build();
+    }
+
+    private static List<String> texts(List<ItemSuggestion> suggestions) {
+        return suggestions.stream().map(ItemSuggestion::text).toList();
+    }
+}
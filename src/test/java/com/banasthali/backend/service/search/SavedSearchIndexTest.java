@@ -0,0 +1,183 @@
+package com.banasthali.backend.service.search;
+
+import com.banasthali.backend.model.Item;
+import com.banasthali.backend.model.SavedSearch;
+import com.banasthali.backend.repository.SavedSearchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SavedSearchIndexTest {
+
+    private final SavedSearchRepository savedSearchRepository = mock(SavedSearchRepository.class);
+
+    private final SavedSearchIndex index = new SavedSearchIndex(savedSearchRepository);
+
+    @Test
+    void everyWordMustBeFound() {
+
+        index.put(search("1", "hero cycle"));
+        index.put(search("2", "hero scooter"));
+
+        assertThat(ids(item("Hero cycle", "Barely used", "Vehicles", 1500))).containsExactly("1");
+    }
+
+    @Test
+    void wordsAreFoundInDescriptionAndCategory() {
+
+        index.put(search("1", "cycle vehicles"));
+
+        assertThat(ids(item("Hero", "A cycle with a basket", "Vehicles", 1500))).containsExactly("1");
+    }
+
+    @Test
+    void wordRepeatedInTheItemCountsOnce() {
+
+        // "cycle" is probed from the title, description and as a start of
+        // "cycles"; it is still one of the two words
+        index.put(search("1", "cycle lock"));
+
+        assertThat(ids(item("Cycle", "cycle cycles cycle", "Vehicles", 1500))).isEmpty();
+        assertThat(ids(item("Cycle", "with a lock", "Vehicles", 1500))).containsExactly("1");
+    }
+
+    @Test
+    void wordRepeatedInTheQueryIsOneWord() {
+
+        index.put(search("1", "cycle Cycle CYCLE"));
+
+        assertThat(ids(item("Hero cycle", null, null, 1500))).containsExactly("1");
+    }
+
+    @Test
+    void wordStartsMatch() {
+
+        index.put(search("1", "calc"));
+        index.put(search("2", "ca"));
+        index.put(search("3", "calculators"));
+
+        assertThat(ids(item("Scientific calculator", null, null, 500))).containsExactlyInAnyOrder("1", "2");
+    }
+
+    @Test
+    void twoWordsMatchedByStartsOfOneWord() {
+
+        index.put(search("1", "calc calculator"));
+
+        assertThat(ids(item("Calculator", null, null, 500))).containsExactly("1");
+    }
+
+    @Test
+    void oneLetterWordsOnlyMatchWhole() {
+
+        index.put(search("1", "x"));
+
+        assertThat(ids(item("Xbox controller", null, null, 2000))).isEmpty();
+        assertThat(ids(item("Type X charger", null, null, 300))).containsExactly("1");
+    }
+
+    @Test
+    void stopWordOnlyQueryMatchesNothing() {
+
+        index.put(search("1", "the and of"));
+
+        assertThat(ids(item("The art of cooking", null, null, 200))).isEmpty();
+    }
+
+    @Test
+    void categoryFilterIgnoresCase() {
+
+        index.put(search("1", "cycle", " vehicles ", null));
+
+        assertThat(ids(item("Hero cycle", null, "Vehicles", 1500))).containsExactly("1");
+        assertThat(ids(item("Hero cycle", null, "Sports", 1500))).isEmpty();
+        assertThat(ids(item("Hero cycle", null, null, 1500))).isEmpty();
+    }
+
+    @Test
+    void priceLimitIsInclusive() {
+
+        index.put(search("1", "cycle", null, BigDecimal.valueOf(1500)));
+
+        assertThat(ids(item("Hero cycle", null, null, 1500))).containsExactly("1");
+        assertThat(ids(item("Hero cycle", null, null, 1501))).isEmpty();
+
+        Item unpriced = item("Hero cycle", null, null, 0);
+        unpriced.setPrice(null);
+
+        assertThat(ids(unpriced)).isEmpty();
+    }
+
+    @Test
+    void putReplacesTheSubscription() {
+
+        index.put(search("1", "cycle"));
+        index.put(search("1", "scooter", null, BigDecimal.valueOf(100)));
+
+        assertThat(ids(item("Hero cycle", null, null, 50))).isEmpty();
+        assertThat(ids(item("Scooter", null, null, 500))).isEmpty();
+        assertThat(ids(item("Scooter", null, null, 50))).containsExactly("1");
+    }
+
+    @Test
+    void deletedSearchIsNotMatched() {
+
+        index.put(search("1", "cycle"));
+        index.put(search("2", "cycle"));
+
+        index.delete("1");
+
+        assertThat(ids(item("Hero cycle", null, null, 1500))).containsExactly("2");
+    }
+
+    @Test
+    void loadReplacesWhatWasIndexed() {
+
+        ReflectionTestUtils.setField(index, "preload", true);
+
+        index.put(search("1", "scooter"));
+
+        when(savedSearchRepository.findAll()).thenReturn(List.of(search("2", "cycle")));
+
+        index.load();
+
+        assertThat(ids(item("Scooter", null, null, 50))).isEmpty();
+        assertThat(ids(item("Hero cycle", null, null, 1500))).containsExactly("2");
+    }
+
+    private List<String> ids(Item item) {
+        return index.match(item).stream().map(SavedSearch::getId).toList();
+    }
+
+    private static SavedSearch search(String id, String query) {
+        return search(id, query, null, null);
+    }
+
+    private static SavedSearch search(String id, String query, String category, BigDecimal maxPrice) {
+
+        return SavedSearch.builder()
+                .id(id)
+                .userId("user-" + id)
+                .query(query)
+                .category(category)
+                .maxPrice(maxPrice)
+                .build();
+    }
+
+    private static Item item(String title, String description, String category, long price) {
+
+        return Item.builder()
+                .id("item")
+                .title(title)
+                .description(description)
+                .category(category)
+                .price(BigDecimal.valueOf(price))
+                .build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.banasthali.backend.service.storage;
+
+import com.mongodb.client.gridfs.GridFSFindIterable;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GridFsUploadStorageTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path cacheDir;
+
+    private final GridFsTemplate gridFsTemplate = mock(GridFsTemplate.class);
+
+    private final GridFSFile file = new GridFSFile(
+            new BsonObjectId(new ObjectId()), "abc.png", CONTENT.length, 255 * 1024, new Date(), new Document());
+
+    @BeforeEach
+    void setUp() {
+
+        GridFSFindIterable found = mock(GridFSFindIterable.class);
+
+        when(gridFsTemplate.find(any(Query.class))).thenReturn(found);
+        when(found.first()).thenReturn(file);
+    }
+
+    @Test
+    void evictedCopyOutlivesTheRetireDelay() throws IOException {
+
+        GridFsUploadStorage storage = storage(Duration.ofHours(1));
+
+        content(() -> new ByteArrayInputStream(CONTENT));
+
+        // handed to sendfile, which opens it after the request returns
+        Path local = storage.localPath("abc.png").orElseThrow();
+
+        storage.delete("abc.png");
+        storage.deleteRetired();
+
+        assertThat(local).hasBinaryContent(CONTENT);
+    }
+
+    @Test
+    void retiredCopyIsDeletedAfterTheDelay() throws IOException {
+
+        GridFsUploadStorage storage = storage(Duration.ZERO);
+
+        content(() -> new ByteArrayInputStream(CONTENT));
+
+        Path local = storage.localPath("abc.png").orElseThrow();
+
+        storage.delete("abc.png");
+        storage.deleteRetired();
+
+        assertThat(local).doesNotExist();
+    }
+
+    @Test
+    void slowDownloadDoesNotBlockOtherNames() throws Exception {
+
+        GridFsUploadStorage storage = storage(Duration.ZERO);
+
+        CountDownLatch downloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        content(() -> {
+
+            if (Thread.currentThread().getName().startsWith("slow")) {
+
+                downloading.countDown();
+
+                await(release);
+
+            }
+
+            return new ByteArrayInputStream(CONTENT);
+        });
+
+        ExecutorService slow = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "slow"));
+
+        try {
+
+            Future<?> stuck = slow.submit(() -> storage.localPath("abc.png"));
+
+            assertThat(downloading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // a Caffeine compute would hold the bin lock for the whole download
+            for (int i = 0; i < 64; i++) {
+                assertThat(storage.localPath("other-" + i + ".png")).isPresent();
+            }
+
+            release.countDown();
+
+            stuck.get(5, TimeUnit.SECONDS);
+
+        } finally {
+
+            release.countDown();
+
+            slow.shutdownNow();
+
+        }
+    }
+
+    @Test
+    void downloadThatRacedAPutIsNotKept() throws IOException {
+
+        GridFsUploadStorage storage = storage(Duration.ZERO);
+
+        Path source = Files.write(cacheDir.resolveSibling(cacheDir.getFileName() + "-new"), CONTENT);
+
+        // the old content is read, and the file is replaced before it is cached
+        content(() -> {
+
+            try {
+                storage.put("abc.png", source, "image/png");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+
+            return new ByteArrayInputStream("old".getBytes(StandardCharsets.US_ASCII));
+        });
+
+        Path first = storage.localPath("abc.png").orElseThrow();
+
+        content(() -> new ByteArrayInputStream(CONTENT));
+
+        Path second = storage.localPath("abc.png").orElseThrow();
+
+        assertThat(second).isNotEqualTo(first).hasBinaryContent(CONTENT);
+    }
+
+    private GridFsUploadStorage storage(Duration retireDelay) throws IOException {
+        return new GridFsUploadStorage(gridFsTemplate, cacheDir.toString(), DataSize.ofMegabytes(1), retireDelay);
+    }
+
+    private void content(ContentSource source) throws IOException {
+
+        GridFsResource resource = mock(GridFsResource.class);
+
+        when(gridFsTemplate.getResource(file)).thenReturn(resource);
+        when(gridFsTemplate.store(any(InputStream.class), anyString(), anyString())).thenReturn(new ObjectId());
+        when(resource.getInputStream()).thenAnswer(invocation -> source.open());
+    }
+
+    private interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    private static void await(CountDownLatch latch) {
+
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}